@@ -1,48 +1,80 @@
 package pers.liuqi.rpc;
 
-import com.egls.server.utils.function.Ticker;
 import groovy.util.logging.Slf4j;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.*;
+import io.netty.util.Timeout;
+import pers.liuqi.rpc.config.ServiceInfoConfig;
 import pers.liuqi.rpc.invoke.Invoke;
 import pers.liuqi.rpc.invoke.InvokeResult;
+import pers.liuqi.rpc.net.Compression;
+import pers.liuqi.rpc.net.FrameCompressor;
+import pers.liuqi.rpc.net.MethodTable;
+import pers.liuqi.rpc.net.TypeTable;
 import pers.liuqi.rpc.service.Service;
 import pers.liuqi.rpc.util.Recorder;
 import pers.liuqi.rpc.util.RuntimeLogger;
+import pers.liuqi.rpc.util.ServiceMetrics;
 
-import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.function.Consumer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <pre>
  * 服务提供者
  * 此管理类持有具体服务实现的实例，并管理服务实现类的启动、停止以及周期任务
  * 同时接受并处理所有的远程调用、本地调用，并将执行结果原路发送回去
+ * 调用按执行策略分配到执行通道上执行，服务实现的周期任务由定时器按间隔提交
  * </pre>
  *
  * @author LiuQi - [Created on 2018-08-02]
  */
 @Slf4j
 @ChannelHandler.Sharable
-public abstract class AbstractServiceProvider extends SimpleChannelInboundHandler<Invoke> implements Ticker {
+public abstract class AbstractServiceProvider extends SimpleChannelInboundHandler<Invoke> {
 
     private long serviceTickInterval;
-    private long nextTickTime;
+    private Timeout serviceTickTimeout;
 
-    private Map<Channel, Queue<Invoke>> remoteInvokeMap = new ConcurrentHashMap<>();
-    private Queue<Invoke> localInvokeQueue = new ConcurrentLinkedQueue<>();
+    /**
+     * 执行策略，以及按策略创建的执行通道
+     */
+    private ExecutorPolicy executorPolicy = ExecutorPolicy.SINGLE;
+    private InvokeLane[] lanes;
+
+    private volatile boolean destroyed;
+
+    private Class<?> serviceInterface;
+    private TypeTable typeTable;
+    private MethodTable methodTable;
+    private ServiceMetrics metrics;
 
-    public AbstractServiceProvider(long serviceTickInterval) {
+    /**
+     * 服务配置的压缩方式、字典，连接登陆时校验并加入压缩Handler
+     */
+    private Compression compression = Compression.NONE;
+    private byte[] compressionDictionary;
+
+    /**
+     * 直接编码返回值时使用的分配器，启动时按配置的allocator选择，与连接使用的分配器一致
+     */
+    private ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+
+    public AbstractServiceProvider(long serviceTickInterval, Class<?> serviceInterface) {
         this.serviceTickInterval = serviceTickInterval;
+        this.serviceInterface = serviceInterface;
+        this.typeTable = TypeTable.of(serviceInterface);
+        this.methodTable = MethodTable.of(serviceInterface);
+        this.metrics = Recorder.registerProvider(serviceInterface.getSimpleName(), methodTable);
     }
 
     /**
      * 本地调用
      */
     public void localInvoke(Invoke invoke) {
-        localInvokeQueue.add(invoke);
+        onArrive(invoke);
+        selectLane(invoke).addLocal(invoke);
     }
 
     /**
@@ -50,75 +82,275 @@ public abstract class AbstractServiceProvider extends SimpleChannelInboundHandle
      */
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, Invoke msg) throws Exception {
-        remoteInvokeMap.computeIfAbsent(ctx.channel(), key -> new ConcurrentLinkedQueue<>()).add(msg);
+        onArrive(msg);
+        selectLane(msg).addRemote(ctx.channel(), msg);
     }
 
     /**
-     * 处理远程调用、本地调用
+     * 记录收到调用的时间，执行时统计排队等待的耗时
      */
-    @Override
-    public final void tick() {
-        //处理本地调用
-        loopInvoke(localInvokeQueue, RpcContext::onInvokeFinish);
-
-        //处理远程调用
-        remoteInvokeMap.forEach((channel, queue) -> {
-            loopInvoke(queue, result -> {
-                if (channel.isActive()) {
-                    channel.write(result);
-                }
-            });
-            channel.flush();
-        });
-
-        //删除不活跃的链接记录
-        remoteInvokeMap.keySet().removeIf(channel -> !channel.isActive());
-
-        //执行服务实现的周期任务
-        if (serviceTickInterval > 0 && nextTickTime >= System.currentTimeMillis()) {
-            nextTickTime += System.currentTimeMillis() + serviceTickInterval;
+    private void onArrive(Invoke invoke) {
+        invoke.setArrivalNanos(System.nanoTime());
+        metrics.onArrive(invoke.getMethodId());
+    }
+
+    /**
+     * 开始按执行策略处理调用以及服务实现的周期任务
+     *
+     * @param executorPolicy 执行策略
+     * @param executors      每条执行通道使用的执行器
+     */
+    void start(ExecutorPolicy executorPolicy, Executor[] executors) {
+        InvokeLane[] lanes = new InvokeLane[executors.length];
+        for (int i = 0; i < executors.length; i++) {
+            lanes[i] = new InvokeLane(this, executors[i]);
+        }
+        this.executorPolicy = executorPolicy;
+        this.lanes = lanes;
+        this.allocator = RpcServiceStarter.getSingleton().getConfig().getAllocator();
+
+        if (serviceTickInterval > 0) {
+            scheduleServiceTick();
+        }
+    }
+
+    /**
+     * 按调用的路由键选择执行通道，路由键相同的调用总是在同一条通道上
+     */
+    private InvokeLane selectLane(Invoke invoke) {
+        if (lanes.length == 1) {
+            return lanes[0];
+        }
+        int hash = invoke.getRouteHash();
+        hash ^= hash >>> 16;
+        return lanes[(hash & Integer.MAX_VALUE) % lanes.length];
+    }
+
+    /**
+     * 服务实现的周期任务总是在第一条通道上执行
+     */
+    private void scheduleServiceTick() {
+        serviceTickTimeout = RpcContext.getTimer().newTimeout(timeout -> lanes[0].requestTick(), serviceTickInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 执行服务实现的周期任务，并安排下一次
+     */
+    void serviceTick() {
+        if (destroyed) {
+            return;
+        }
+        try {
             getService().tick();
+        } catch (Exception e) {
+            RuntimeLogger.error("service tick error", e);
+        } finally {
+            scheduleServiceTick();
         }
     }
 
-    private void loopInvoke(Queue<Invoke> queue, Consumer<InvokeResult<Object>> resultConsumer) {
-        Invoke invoke;
-        int size = queue.size();
-        while (size-- > 0 && (invoke = queue.poll()) != null) {
-            try {
-                //执行服务方法
-                long start = System.nanoTime();
-                Object result = invoke(invoke);
-                Recorder.record(getService().getClass().getSimpleName(), invoke.getMethodName(), System.nanoTime() - start);
-
-                //封装返回值
-                InvokeResult<Object> invokeResult = new InvokeResult<>(invoke.getId(), result);
-                resultConsumer.accept(invokeResult);
-            } catch (Exception e) {
-                RuntimeLogger.error("execute local invoke error", e);
-            }
+    /**
+     * 单向调用执行后不发送调用结果
+     */
+    boolean isOneWay(int methodId) {
+        return methodTable.isOneWay(methodId);
+    }
+
+    /**
+     * 流式方法返回的Iterator分段发送
+     */
+    boolean isStream(int methodId) {
+        return methodTable.isStream(methodId);
+    }
+
+    /**
+     * 执行一次调用，并记录排队等待与执行的耗时，耗时同时记在调用结果上，结果写出后再检查是否为慢调用
+     * 服务方法抛出异常时，返回携带异常摘要的调用结果，调用者收到后立即以异常结束调用
+     */
+    InvokeResult<Object> process(Invoke invoke) {
+        long start = System.nanoTime();
+        long queueNanos = invoke.getArrivalNanos() > 0 ? start - invoke.getArrivalNanos() : -1;
+        InvokeResult<Object> invokeResult;
+        try {
+            invokeResult = execute(invoke);
+        } catch (Throwable e) {
+            RuntimeLogger.error("execute invoke error", getService().getClass().getSimpleName(), methodTable.getMethodName(invoke.getMethodId()), e);
+            invokeResult = InvokeResult.failure(invoke.getId(), e);
         }
+        long end = System.nanoTime();
+        metrics.onExecuted(invoke.getMethodId(), queueNanos, end - start, !invokeResult.isError());
+        invokeResult.setTiming(metrics, invoke.getMethodId(), queueNanos, end - start, end);
+        return invokeResult;
     }
 
+    /**
+     * 本地调用的结果已经交给了调用者，远程调用的结果编码完成后由{@link InvokeResult#onEncoded()}记录
+     *
+     * @param writeNanos 从结果产生到在网络线程上编码完成的耗时，本地调用为-1
+     */
+    void onResponded(int methodId, long invokeId, long queueNanos, long executeNanos, long writeNanos) {
+        metrics.onResponded(methodId, invokeId, queueNanos, executeNanos, writeNanos);
+    }
+
+    /**
+     * 执行服务方法，并封装返回值
+     * 参数已经由调用者按方法签名编码时，直接从编码数据中解码参数，返回值也直接编码
+     */
+    private InvokeResult<Object> execute(Invoke invoke) {
+        ByteBuf paramData = invoke.takeParamData();
+        if (paramData == null) {
+            return InvokeResult.newInstance(invoke.getId(), invoke(invoke));
+        }
+
+        ByteBuf resultData = allocator.ioBuffer();
+        Object pending;
+        try {
+            pending = invoke(invoke, paramData, resultData);
+        } catch (Throwable e) {
+            resultData.release();
+            throw e;
+        } finally {
+            paramData.release();
+        }
+
+        //返回CompletableFuture的方法，结果在完成后再发送；流式方法由执行通道分段发送
+        if (pending != null || isStream(invoke.getMethodId())) {
+            resultData.release();
+            return InvokeResult.newInstance(invoke.getId(), pending);
+        }
+        return InvokeResult.encoded(invoke.getId(), resultData);
+    }
 
     /**
      * 销毁服务
      */
     void destroy() {
-        remoteInvokeMap.keySet().forEach(ChannelOutboundInvoker::close);
-        remoteInvokeMap.clear();
+        destroyed = true;
+        if (serviceTickTimeout != null) {
+            serviceTickTimeout.cancel();
+        }
+
+        for (InvokeLane lane : lanes) {
+            lane.closeChannels();
+            //单独创建的线程一并停止
+            if (executorPolicy.isOwnThread() && lane.getExecutor() instanceof ServiceProcessor) {
+                ((ServiceProcessor) lane.getExecutor()).shutdown();
+            }
+        }
 
         getService().shutdown();
     }
 
+    public ExecutorPolicy getExecutorPolicy() {
+        return executorPolicy;
+    }
+
+    /**
+     * 执行通道的数量
+     */
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * 所有执行通道当前排队的调用总数
+     */
+    public int getQueueDepth() {
+        int queueDepth = 0;
+        for (InvokeLane lane : lanes) {
+            queueDepth += lane.getQueueDepth();
+        }
+        return queueDepth;
+    }
+
+    /**
+     * 指定执行通道当前排队的调用数
+     */
+    public int getQueueDepth(int laneIndex) {
+        return lanes[laneIndex].getQueueDepth();
+    }
+
+    /**
+     * 指定执行通道历史最大排队的调用数
+     */
+    public int getPeakQueueDepth(int laneIndex) {
+        return lanes[laneIndex].getPeakQueueDepth();
+    }
+
+    /**
+     * 指定执行通道已执行的调用数
+     */
+    public long getExecutedCount(int laneIndex) {
+        return lanes[laneIndex].getExecutedCount();
+    }
+
+    /**
+     * 获取服务的接口类
+     */
+    public Class<?> getServiceInterface() {
+        return serviceInterface;
+    }
+
+    /**
+     * 服务接口对应的方法表，登陆时校验调用者的方法签名
+     */
+    public MethodTable getMethodTable() {
+        return methodTable;
+    }
+
+    void setCompression(Compression compression, byte[] compressionDictionary) {
+        this.compression = compression;
+        this.compressionDictionary = compressionDictionary;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    byte[] getCompressionDictionary() {
+        return compressionDictionary;
+    }
+
+    public int getDictionaryId() {
+        return Compression.dictionaryId(compressionDictionary);
+    }
+
+    /**
+     * 为登陆的连接创建压缩Handler，服务不压缩时返回null
+     */
+    public FrameCompressor newCompressor() {
+        if (compression == Compression.NONE) {
+            return null;
+        }
+        ServiceInfoConfig config = RpcServiceStarter.getSingleton().getConfig();
+        return new FrameCompressor(compression, compressionDictionary, config.getCompressThreshold(), config.getMaxFrameLength(), true);
+    }
+
+    /**
+     * 服务接口对应的类型表，解码参数、编码返回值时使用
+     */
+    protected TypeTable getTypeTable() {
+        return typeTable;
+    }
+
     /**
-     * 子类实现，路由到具体的执行方法
+     * 子类实现，按方法ID路由到具体的执行方法
      *
      * @param invoke
      * @return
      */
     protected abstract Object invoke(Invoke invoke);
 
+    /**
+     * 子类实现，从已编码的参数数据中直接解码出各个参数并执行对应的方法，再将返回值直接编码
+     *
+     * @param invoke 调用
+     * @param params 已编码的参数数据
+     * @param result 写入返回值的缓冲区
+     * @return 方法返回CompletableFuture时返回该对象，返回值不写入缓冲区，其余情况返回null
+     */
+    protected abstract Object invoke(Invoke invoke, ByteBuf params, ByteBuf result);
+
     /**
      * 获取服务的实现类
      *
@@ -1,118 +1,371 @@
 package pers.liuqi.rpc;
 
-import com.egls.server.utils.function.Ticker;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
-import io.netty.handler.codec.LengthFieldPrepender;
-import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.codec.string.StringEncoder;
-import pers.liuqi.rpc.config.Constant;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import pers.liuqi.rpc.exception.InvokeRejectedException;
 import pers.liuqi.rpc.invoke.Invoke;
 import pers.liuqi.rpc.invoke.InvokeResult;
+import org.apache.commons.lang3.StringUtils;
+import pers.liuqi.rpc.net.CodecType;
+import pers.liuqi.rpc.net.Compression;
 import pers.liuqi.rpc.net.LoginMessage;
-import pers.liuqi.rpc.net.MessageCodec;
+import pers.liuqi.rpc.net.MethodTable;
+import pers.liuqi.rpc.net.TypeTable;
 import pers.liuqi.rpc.service.ServiceInfo;
-import pers.liuqi.rpc.util.RuntimeLogger;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 远程服务在本地的代理
  * 所有的远程调用都通过此接口发送到远程机器上，并接受处理结果
+ * 与提供者之间可以建立多条连接，调用轮流分配到可用的连接上
+ * 配置了多路复用时，不再单独建立连接，使用与提供者所在节点之间共用的一条连接，调用携带服务ID
+ * 每条连接的在途调用数受窗口限制，调用没有发送出去时抛出InvokeRejectedException，返回CompletableFuture的方法以该异常完成
  *
  * @author LiuQi - [Created on 2018-08-02]
  */
 @ChannelHandler.Sharable
-public abstract class AbstractServiceRemoteProxy extends SimpleChannelInboundHandler<InvokeResult> implements Ticker {
+public abstract class AbstractServiceRemoteProxy extends SimpleChannelInboundHandler<InvokeResult> {
 
     private ServiceInfo info;
+    private Class<?> serviceInterface;
+    private int serviceId;
+
+    /**
+     * 提供者发布的权重，注册中心数据更新时同步
+     */
+    private volatile int weight;
+
+    private CodecType codecType;
+    private TypeTable typeTable;
+    private MethodTable methodTable;
+
+    /**
+     * 提供者发布的压缩方式、字典
+     */
+    private Compression compression;
+    private byte[] compressionDictionary;
 
-    private Channel channel;
+    /**
+     * 编码参数时使用的分配器，启动时按配置的allocator选择，与连接使用的分配器一致
+     */
+    private ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
 
-    private long lastTouchMillis;
+    private volatile RemoteConnection[] connections;
+    private volatile boolean multiplexed;
+    private AtomicInteger nextConnection = new AtomicInteger();
 
-    public AbstractServiceRemoteProxy(ServiceInfo info) {
+    public AbstractServiceRemoteProxy(ServiceInfo info, Class<?> serviceInterface) {
         this.info = info;
+        this.serviceInterface = serviceInterface;
+        this.serviceId = RpcContext.serviceId(info.getName());
+        this.weight = info.getWeight();
+        this.codecType = CodecType.of(info.getCodec());
+        this.typeTable = TypeTable.of(serviceInterface);
+        this.methodTable = MethodTable.of(serviceInterface);
+        this.compression = Compression.of(info.getCompression());
+        if (StringUtils.isNotEmpty(info.getCompressionDictionary())) {
+            this.compressionDictionary = Base64.getDecoder().decode(info.getCompressionDictionary());
+        }
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, InvokeResult result) throws Exception {
-        RpcContext.onInvokeFinish(result);
+        RemoteConnection.onResult(ctx.channel(), result);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        RemoteConnection.onWritabilityChanged(ctx.channel());
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        RemoteConnection.onException(ctx.channel(), cause);
     }
 
     /**
-     * 处理网络指令
+     * 按提供者发布的连接数建立连接，所有连接共用客户端网络线程
+     * 多路复用时使用所在节点共用的连接
      */
-    @Override
-    public void tick() {
-        //断线重连
-        if (isNetInvalid() && lastTouchMillis + Constant.RE_CONNECT_INTERVAL < System.currentTimeMillis()) {
-            lastTouchMillis = System.currentTimeMillis();
-
-            EventLoopGroup bossGroup = new NioEventLoopGroup();
-            Bootstrap bootstrap = new Bootstrap();
-            bootstrap
-                    .group(bossGroup)
-                    .channel(NioSocketChannel.class)
-                    .handler(new ChannelInitializer<SocketChannel>() {
-
-                        @Override
-                        protected void initChannel(SocketChannel channel) throws Exception {
-                            ChannelPipeline pipeline = channel.pipeline();
-
-                            //基于长度的拆包、封包
-                            pipeline.addLast(new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, Constant.PACKAGE_LENGTH, 0, Constant.PACKAGE_LENGTH));
-                            pipeline.addLast(new LengthFieldPrepender(Constant.PACKAGE_LENGTH));
-
-                            //字符串的编解码
-                            pipeline.addLast(new StringDecoder());
-                            pipeline.addLast(new StringEncoder());
-
-                            //对象的序列化反序列化
-                            pipeline.addLast(new MessageCodec());
-                            pipeline.addLast(AbstractServiceRemoteProxy.this);
-                        }
-                    });
-
-            try {
-                ChannelFuture future = bootstrap.connect(info.getIp(), info.getPort()).sync();
-                this.channel = future.channel();
-                this.channel.writeAndFlush(new LoginMessage(info.getName()));
-            } catch (InterruptedException e) {
-                RuntimeLogger.error(e);
-            }
+    void start() {
+        this.allocator = RpcServiceStarter.getSingleton().getConfig().getAllocator();
+        if (RpcServiceStarter.getSingleton().getConfig().isMultiplex()) {
+            this.multiplexed = true;
+            this.connections = new RemoteConnection[]{MultiplexConnector.attach(this)};
+            return;
+        }
+
+        Bootstrap bootstrap = RemoteConnection.newBootstrap(codecType, typeTable, this, false, compression, compressionDictionary);
+        RemoteConnection[] connections = new RemoteConnection[Math.max(1, info.getConnections())];
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = new RemoteConnection(this, bootstrap, info.getIp(), info.getPort());
+        }
+        this.connections = connections;
+
+        for (RemoteConnection connection : connections) {
+            connection.connect();
         }
     }
 
     /**
-     * 子类将方法名字、参数列表传入，由本方法将调用发送给远程服务提供者
+     * 连接成功后发送的登陆消息
+     */
+    LoginMessage newLoginMessage() {
+        LoginMessage login = new LoginMessage(info.getName(), methodTable.getSignatures(), typeTable.getTypeNames());
+        login.setCompression(compression.name());
+        login.setDictionaryId(getDictionaryId());
+        return login;
+    }
+
+    ServiceInfo getInfo() {
+        return info;
+    }
+
+    int getServiceId() {
+        return serviceId;
+    }
+
+    Compression getCompression() {
+        return compression;
+    }
+
+    byte[] getCompressionDictionary() {
+        return compressionDictionary;
+    }
+
+    /**
+     * 实际使用的字典ID，压缩方式不支持字典时为0
+     */
+    int getDictionaryId() {
+        return compression.supportsDictionary() ? Compression.dictionaryId(compressionDictionary) : 0;
+    }
+
+    Class<?> getServiceInterface() {
+        return serviceInterface;
+    }
+
+    /**
+     * 连接建立或断开，重建服务接口的可用列表
+     */
+    void onConnectionChanged() {
+        RpcContext.refreshProxyGroup(serviceInterface);
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * 所有连接上已发送还未收到结果、以及等待发送的调用数，负载均衡时使用
+     */
+    public int getInflightCount() {
+        RemoteConnection[] connections = this.connections;
+        if (connections == null) {
+            return 0;
+        }
+        int count = 0;
+        for (RemoteConnection connection : connections) {
+            count += connection.getInflightCount() + connection.getWaitCount();
+        }
+        return count;
+    }
+
+    /**
+     * 子类将方法ID、路由键哈希、参数列表传入，由本方法将调用发送给远程服务提供者
+     */
+    protected void remoteInvoke(int methodId, int routeHash, Object[] methodParams) {
+        //封装调用参数
+        Invoke invoke = RpcContext.buildInvoke(info.getName(), methodId, routeHash, methodParams);
+
+        //发送到网络
+        send(invoke);
+    }
+
+    /**
+     * 子类将方法ID、路由键哈希、已经按方法签名编码好的参数传入，由本方法将调用发送给远程服务提供者
      */
-    protected void remoteInvoke(String method, Object[] methodParams) {
+    protected void remoteInvoke(int methodId, int routeHash, ByteBuf paramData) {
         //封装调用参数
-        Invoke invoke = RpcContext.buildInvoke(info.getName(), method, methodParams);
+        Invoke invoke = RpcContext.buildInvoke(info.getName(), methodId, routeHash, paramData);
 
         //发送到网络
-        if (channel != null) {
-            channel.writeAndFlush(invoke);
+        send(invoke);
+    }
+
+    /**
+     * 单向调用，不登记回调，也不占用在途窗口
+     */
+    protected void remoteInvokeOneWay(int methodId, int routeHash, Object[] methodParams) {
+        sendOneWay(RpcContext.buildOneWayInvoke(info.getName(), methodId, routeHash, methodParams));
+    }
+
+    /**
+     * 单向调用，参数已经按方法签名编码
+     */
+    protected void remoteInvokeOneWay(int methodId, int routeHash, ByteBuf paramData) {
+        sendOneWay(RpcContext.buildOneWayInvoke(info.getName(), methodId, routeHash, paramData));
+    }
+
+    /**
+     * 返回CompletableFuture的方法，调用结果返回时直接完成
+     */
+    protected CompletableFuture<Object> remoteInvokeAsync(int methodId, int routeHash, Object[] methodParams) {
+        Invoke invoke = RpcContext.buildInvoke(info.getName(), methodId, routeHash, methodParams);
+        return sendAsync(invoke);
+    }
+
+    /**
+     * 返回CompletableFuture的方法，参数已经按方法签名编码
+     */
+    protected CompletableFuture<Object> remoteInvokeAsync(int methodId, int routeHash, ByteBuf paramData) {
+        Invoke invoke = RpcContext.buildInvoke(info.getName(), methodId, routeHash, paramData);
+        return sendAsync(invoke);
+    }
+
+    /**
+     * 调用被拒绝时不抛出异常，返回的CompletableFuture已经以异常完成
+     */
+    private CompletableFuture<Object> sendAsync(Invoke invoke) {
+        CompletableFuture<Object> future = RpcContext.registerCompletion(info.getName(), invoke);
+        try {
+            send(invoke);
+        } catch (InvokeRejectedException ignore) {
         }
+        return future;
     }
 
-    public boolean isValid() {
-        return !isNetInvalid();
+    /**
+     * 发送调用，没有可用的连接或者窗口拒绝时结束已登记的回调，并抛出InvokeRejectedException
+     */
+    private void send(Invoke invoke) {
+        invoke.setServiceId(serviceId);
+
+        //批量调用范围内，先收集起来，离开范围时一起发送
+        if (RpcContext.addToBatch(this, invoke)) {
+            return;
+        }
+
+        long invokeId = invoke.getId();
+        RemoteConnection connection = selectConnection();
+        try {
+            if (connection == null) {
+                invoke.recycle();
+                throw new InvokeRejectedException(info.getName(), invokeId, "no active connection");
+            }
+            connection.write(invoke);
+        } catch (InvokeRejectedException e) {
+            RpcContext.failInvoke(invokeId, e);
+            throw e;
+        }
     }
 
-    private boolean isNetInvalid() {
-        return channel == null || !channel.isActive();
+    /**
+     * 将批量调用范围内收集的调用作为一个数据包发送
+     * 被拒绝的调用以异常结束已登记的回调，不抛出异常
+     */
+    void sendBatch(List<Invoke> invokes) {
+        RemoteConnection connection = selectConnection();
+        if (connection == null) {
+            for (Invoke invoke : invokes) {
+                long invokeId = invoke.getId();
+                invoke.recycle();
+                RpcContext.failInvoke(invokeId, new InvokeRejectedException(info.getName(), invokeId, "no active connection"));
+            }
+            return;
+        }
+        connection.writeBatch(invokes);
+    }
+
+    /**
+     * 发送单向调用，没有可用的连接或者连接不可写时抛出InvokeRejectedException
+     */
+    private void sendOneWay(Invoke invoke) {
+        invoke.setServiceId(serviceId);
+        RemoteConnection connection = selectConnection();
+        if (connection == null) {
+            long invokeId = invoke.getId();
+            invoke.recycle();
+            throw new InvokeRejectedException(info.getName(), invokeId, "no active connection");
+        }
+        connection.writeOneWay(invoke);
+    }
+
+    /**
+     * 轮流选择一条可用的连接
+     *
+     * @return 没有可用连接时返回null
+     */
+    private RemoteConnection selectConnection() {
+        RemoteConnection[] connections = this.connections;
+        if (connections == null) {
+            return null;
+        }
+        int start = nextConnection.getAndIncrement();
+        for (int i = 0; i < connections.length; i++) {
+            RemoteConnection connection = connections[Math.floorMod(start + i, connections.length)];
+            if (connection.isActive()) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否由生成的序列化类直接编码参数，只有使用二进制编码时可以
+     */
+    protected boolean isEncodeParams() {
+        return codecType == CodecType.BINARY;
+    }
+
+    /**
+     * 分配用于编码参数的缓冲区
+     */
+    protected ByteBuf allocParams() {
+        return allocator.ioBuffer();
+    }
+
+    protected TypeTable getTypeTable() {
+        return typeTable;
+    }
+
+    public boolean isValid() {
+        RemoteConnection[] connections = this.connections;
+        if (connections != null) {
+            for (RemoteConnection connection : connections) {
+                if (connection.isActive()) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
      * 销毁远程服务接口
      */
     void destroy() {
-        if (!isNetInvalid()) {
-            channel.close();
+        RemoteConnection[] connections = this.connections;
+        if (connections != null) {
+            for (RemoteConnection connection : connections) {
+                if (multiplexed) {
+                    MultiplexConnector.detach(this, connection);
+                } else {
+                    connection.close();
+                }
+            }
         }
     }
 
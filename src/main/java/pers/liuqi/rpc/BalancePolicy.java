@@ -0,0 +1,143 @@
+package pers.liuqi.rpc;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ * 内置的负载均衡策略，在service.xml中配置，对所有服务接口生效
+ *
+ * ROUND_ROBIN          轮流选择
+ * LEAST_OUTSTANDING    选择在途调用数最少的提供者
+ * POWER_OF_TWO         随机选择两个，取在途调用数较少的一个
+ * WEIGHTED             按提供者发布的权重随机选择
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public enum BalancePolicy {
+
+    ROUND_ROBIN {
+        @Override
+        public LoadBalancer newBalancer() {
+            return new RoundRobinBalancer();
+        }
+    },
+    LEAST_OUTSTANDING {
+        @Override
+        public LoadBalancer newBalancer() {
+            return BalancePolicy::selectLeastOutstanding;
+        }
+    },
+    POWER_OF_TWO {
+        @Override
+        public LoadBalancer newBalancer() {
+            return BalancePolicy::selectPowerOfTwo;
+        }
+    },
+    WEIGHTED {
+        @Override
+        public LoadBalancer newBalancer() {
+            return new WeightedBalancer();
+        }
+    };
+
+    /**
+     * 每个服务接口单独创建，有状态的策略互不影响
+     */
+    public abstract LoadBalancer newBalancer();
+
+    /**
+     * 根据配置的名称获取策略，未配置时使用POWER_OF_TWO
+     */
+    public static BalancePolicy of(String name) {
+        for (BalancePolicy policy : values()) {
+            if (StringUtils.equalsIgnoreCase(policy.name(), name)) {
+                return policy;
+            }
+        }
+        return POWER_OF_TWO;
+    }
+
+    private static AbstractServiceRemoteProxy selectLeastOutstanding(AbstractServiceRemoteProxy[] proxies) {
+        //从随机位置开始，在途调用数相同时分散到不同的提供者
+        int start = ThreadLocalRandom.current().nextInt(proxies.length);
+        AbstractServiceRemoteProxy selected = null;
+        int least = Integer.MAX_VALUE;
+        for (int i = 0; i < proxies.length; i++) {
+            AbstractServiceRemoteProxy proxy = proxies[(start + i) % proxies.length];
+            int inflight = proxy.getInflightCount();
+            if (inflight < least) {
+                least = inflight;
+                selected = proxy;
+            }
+        }
+        return selected;
+    }
+
+    private static AbstractServiceRemoteProxy selectPowerOfTwo(AbstractServiceRemoteProxy[] proxies) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(proxies.length);
+        int second = random.nextInt(proxies.length - 1);
+        if (second >= first) {
+            second++;
+        }
+        AbstractServiceRemoteProxy a = proxies[first];
+        AbstractServiceRemoteProxy b = proxies[second];
+        return a.getInflightCount() <= b.getInflightCount() ? a : b;
+    }
+
+    private static final class RoundRobinBalancer implements LoadBalancer {
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        @Override
+        public AbstractServiceRemoteProxy select(AbstractServiceRemoteProxy[] proxies) {
+            return proxies[Math.floorMod(next.getAndIncrement(), proxies.length)];
+        }
+    }
+
+    /**
+     * 权重的累加表只在可用列表重建后计算一次
+     */
+    private static final class WeightedBalancer implements LoadBalancer {
+
+        private volatile WeightTable weightTable;
+
+        @Override
+        public AbstractServiceRemoteProxy select(AbstractServiceRemoteProxy[] proxies) {
+            WeightTable table = this.weightTable;
+            if (table == null || table.proxies != proxies) {
+                table = new WeightTable(proxies);
+                this.weightTable = table;
+            }
+
+            int[] weights = table.cumulativeWeights;
+            int value = ThreadLocalRandom.current().nextInt(weights[weights.length - 1]);
+            for (int i = 0; i < weights.length; i++) {
+                if (value < weights[i]) {
+                    return proxies[i];
+                }
+            }
+            return proxies[proxies.length - 1];
+        }
+    }
+
+    private static final class WeightTable {
+
+        private final AbstractServiceRemoteProxy[] proxies;
+        private final int[] cumulativeWeights;
+
+        private WeightTable(AbstractServiceRemoteProxy[] proxies) {
+            this.proxies = proxies;
+            this.cumulativeWeights = new int[proxies.length];
+            int total = 0;
+            for (int i = 0; i < proxies.length; i++) {
+                total += proxies[i].getWeight();
+                cumulativeWeights[i] = total;
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package pers.liuqi.rpc;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * <pre>
+ * 一个服务接口所有提供者组成的一致性哈希环
+ * 每个提供者按服务器ID在环上放置多个虚拟节点，路由键按哈希值顺时针找到第一个虚拟节点对应的提供者
+ * 提供者增加、删除时只增删该提供者的虚拟节点，只有约1/N的路由键会改变提供者
+ * 选中的提供者连接不可用时，继续顺时针寻找下一个可用的提供者，恢复后路由键回到原来的提供者
+ * 成员变化由所在的ProxyGroup加锁后执行，查找不加锁
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+final class ConsistentHashRing {
+
+    private final int virtualNodes;
+
+    /**
+     * <虚拟节点的哈希值，提供者>
+     */
+    private final ConcurrentSkipListMap<Integer, Member> ring = new ConcurrentSkipListMap<>();
+
+    /**
+     * <服务器ID，提供者>
+     */
+    private final Map<String, Member> members = new HashMap<>();
+
+    ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * 与当前的服务代理同步成员，只增删发生变化的提供者
+     *
+     * @param serviceMap <服务ID， 服务代理>，可能为null
+     */
+    void sync(Map<String, Object> serviceMap) {
+        Iterator<Member> iterator = members.values().iterator();
+        while (iterator.hasNext()) {
+            Member member = iterator.next();
+            Object service = serviceMap == null ? null : serviceMap.get(member.serverId);
+            if (service != member.service) {
+                removeNodes(member);
+                iterator.remove();
+            }
+        }
+
+        if (serviceMap != null) {
+            serviceMap.forEach((serverId, service) -> {
+                if (!members.containsKey(serverId)) {
+                    Member member = new Member(serverId, service);
+                    addNodes(member);
+                    members.put(serverId, member);
+                }
+            });
+        }
+    }
+
+    private void addNodes(Member member) {
+        for (int i = 0; i < virtualNodes; i++) {
+            int hash = mix((member.serverId + '#' + i).hashCode());
+            //哈希冲突时保留先加入的节点
+            if (ring.putIfAbsent(hash, member) == null) {
+                member.points[i] = hash;
+                member.placed[i] = true;
+            }
+        }
+    }
+
+    private void removeNodes(Member member) {
+        for (int i = 0; i < virtualNodes; i++) {
+            if (member.placed[i]) {
+                ring.remove(member.points[i], member);
+            }
+        }
+    }
+
+    /**
+     * @return 路由键对应的可用提供者，没有可用的提供者时返回null
+     */
+    Object select(Object routingKey) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+
+        int hash = mix(RpcContext.routeHash(routingKey));
+        for (Member member : ring.tailMap(hash).values()) {
+            if (member.isAvailable()) {
+                return member.service;
+            }
+        }
+        for (Member member : ring.headMap(hash).values()) {
+            if (member.isAvailable()) {
+                return member.service;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 打散哈希值，hashCode相近的键也能均匀分布在环上
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private final class Member {
+
+        private final String serverId;
+        private final Object service;
+        private final int[] points = new int[virtualNodes];
+        private final boolean[] placed = new boolean[virtualNodes];
+
+        private Member(String serverId, Object service) {
+            this.serverId = serverId;
+            this.service = service;
+        }
+
+        /**
+         * 本地服务总是可用，远程服务需要有可用的连接
+         */
+        private boolean isAvailable() {
+            return !(service instanceof AbstractServiceRemoteProxy) || ((AbstractServiceRemoteProxy) service).isValid();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package pers.liuqi.rpc;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * <pre>
+ * 服务提供者执行调用的策略，在service.xml中为每个服务单独配置
+ *
+ * SINGLE       所有配置此策略的服务共用一个服务线程，即原有的执行方式
+ * DEDICATED    服务独占一个线程，慢方法不会影响其他服务
+ * POOL         服务在共享的工作线程池上执行，同一时刻只有一个线程在执行该服务，服务实现不需要考虑线程安全
+ * PARTITIONED  服务拥有多个线程，按调用的路由键分配线程，路由键相同的调用按顺序执行，服务实现需要自行保证线程安全
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public enum ExecutorPolicy {
+
+    SINGLE(false),
+    DEDICATED(true),
+    POOL(false),
+    PARTITIONED(true);
+
+    /**
+     * 执行线程是否为此服务单独创建，服务销毁时需要一并停止
+     */
+    private final boolean ownThread;
+
+    ExecutorPolicy(boolean ownThread) {
+        this.ownThread = ownThread;
+    }
+
+    /**
+     * 根据配置的名称获取执行策略，未配置时使用SINGLE
+     */
+    public static ExecutorPolicy of(String name) {
+        for (ExecutorPolicy policy : values()) {
+            if (StringUtils.equalsIgnoreCase(policy.name(), name)) {
+                return policy;
+            }
+        }
+        return SINGLE;
+    }
+
+    boolean isOwnThread() {
+        return ownThread;
+    }
+}
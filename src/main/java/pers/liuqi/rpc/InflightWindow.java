@@ -0,0 +1,305 @@
+package pers.liuqi.rpc;
+
+import io.netty.channel.Channel;
+import pers.liuqi.rpc.config.Constant;
+import pers.liuqi.rpc.exception.ConnectionClosedException;
+import pers.liuqi.rpc.exception.InvokeRejectedException;
+import pers.liuqi.rpc.invoke.Invoke;
+import pers.liuqi.rpc.invoke.InvokeBatch;
+import pers.liuqi.rpc.util.PendingTable;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ * 调用者一端每条连接的在途窗口
+ * 限制已发送、还未收到结果的调用数，每个空位按调用ID登记
+ * 调用以任何方式结束时按调用ID归还空位：收到调用结果、超时、失败，同一个调用只归还一次
+ * 除单向调用外提供者都会返回调用结果，没有登记回调的调用(没有返回值的方法)同样在收到结果时归还，不需要单独的定时任务
+ * 连接不可写时(未刷新的数据超过高水位)同样视为窗口已满，避免在发送缓冲区中无限堆积
+ * 窗口已满时按{@link WindowFullPolicy}排队、拒绝或者阻塞调用线程
+ * 每次连接成功时创建，连接断开后等待中的调用以拒绝结束，已发送、还未收到结果的调用以失败结束
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+final class InflightWindow {
+
+    /**
+     * <调用ID，占用了空位的窗口>
+     */
+    private static final PendingTable<InflightWindow> HOLDERS = new PendingTable<>(Constant.PENDING_TABLE_CAPACITY);
+
+    private final String serviceName;
+    private final Channel channel;
+    private final WriteBatcher batcher;
+
+    private final int windowSize;
+    private final WindowFullPolicy policy;
+    private final int queueSize;
+    private final long blockTimeoutMillis;
+
+    /**
+     * 窗口剩余的空位
+     */
+    private final AtomicInteger permits;
+
+    /**
+     * 窗口已满时等待发送的调用
+     */
+    private final Queue<Invoke> waitQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitCount = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    /**
+     * 阻塞等待空位的调用线程
+     */
+    private final Object blockLock = new Object();
+    private volatile int blockedCount;
+
+    private volatile boolean closed;
+
+    InflightWindow(String serviceName, Channel channel, WriteBatcher batcher, int windowSize, WindowFullPolicy policy, int queueSize, long blockTimeoutMillis) {
+        this.serviceName = serviceName;
+        this.channel = channel;
+        this.batcher = batcher;
+        this.windowSize = windowSize;
+        this.policy = policy;
+        this.queueSize = queueSize;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.permits = new AtomicInteger(windowSize);
+    }
+
+    /**
+     * 发送调用，被拒绝时抛出异常，调用对象已经归还
+     */
+    void write(Invoke invoke) {
+        if (closed) {
+            throw reject(invoke, "connection closed");
+        }
+
+        //已经有调用在等待时，新的调用也要排队，保证顺序
+        if (waitCount.get() == 0 && tryAcquire(1)) {
+            hold(invoke);
+            batcher.write(invoke);
+            return;
+        }
+
+        switch (policy) {
+            case REJECT:
+                throw reject(invoke, "inflight window full");
+            case BLOCK:
+                if (!channel.eventLoop().inEventLoop()) {
+                    block(invoke);
+                    return;
+                }
+                //网络线程上阻塞会导致永远收不到调用结果，改为排队
+                enqueue(invoke);
+                return;
+            default:
+                enqueue(invoke);
+        }
+    }
+
+    /**
+     * 发送批量调用，窗口有足够的空位时作为一个数据包发送
+     * 空位不足时逐个发送，按策略排队、拒绝或者阻塞，被拒绝的调用以异常结束已登记的回调
+     */
+    void writeBatch(List<Invoke> invokes) {
+        if (!closed && waitCount.get() == 0 && tryAcquire(invokes.size())) {
+            invokes.forEach(this::hold);
+            batcher.write(new InvokeBatch(invokes));
+            return;
+        }
+
+        for (Invoke invoke : invokes) {
+            long invokeId = invoke.getId();
+            try {
+                write(invoke);
+            } catch (InvokeRejectedException e) {
+                RpcContext.failInvoke(invokeId, e);
+            }
+        }
+    }
+
+    /**
+     * 发送单向调用，不占用空位，也不参与排队
+     * 连接不可写时直接拒绝，单向调用不会在发送缓冲区中堆积
+     */
+    void writeOneWay(Invoke invoke) {
+        if (closed) {
+            throw reject(invoke, "connection closed");
+        }
+        if (!channel.isWritable()) {
+            throw reject(invoke, "channel not writable");
+        }
+        batcher.write(invoke);
+    }
+
+    private void enqueue(Invoke invoke) {
+        if (waitCount.incrementAndGet() > queueSize) {
+            waitCount.decrementAndGet();
+            throw reject(invoke, "inflight window full, wait queue full");
+        }
+        waitQueue.add(invoke);
+        if (closed) {
+            failWaiting();
+        } else {
+            scheduleDrain();
+        }
+    }
+
+    private void block(Invoke invoke) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        synchronized (blockLock) {
+            blockedCount++;
+            try {
+                while (!tryAcquire(1)) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || closed) {
+                        throw reject(invoke, "inflight window full, block timeout");
+                    }
+                    blockLock.wait(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject(invoke, "interrupted");
+            } finally {
+                blockedCount--;
+            }
+        }
+        hold(invoke);
+        batcher.write(invoke);
+    }
+
+    /**
+     * 一次占用多个空位，空位不足时一个也不占用
+     */
+    private boolean tryAcquire(int count) {
+        if (!channel.isWritable()) {
+            return false;
+        }
+        for (; ; ) {
+            int available = permits.get();
+            if (available < count) {
+                return false;
+            }
+            if (permits.compareAndSet(available, available - count)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 按调用ID登记占用的空位，需要在发送之前登记
+     */
+    private void hold(Invoke invoke) {
+        HOLDERS.put(invoke.getId(), this);
+    }
+
+    /**
+     * 调用结束，归还调用占用的空位，没有占用或者已经归还时忽略
+     */
+    static void release(long invokeId) {
+        InflightWindow window = HOLDERS.remove(invokeId);
+        if (window != null) {
+            window.permits.incrementAndGet();
+            window.wake();
+        }
+    }
+
+    /**
+     * 连接重新变为可写
+     */
+    void onWritable() {
+        wake();
+    }
+
+    private void wake() {
+        if (!waitQueue.isEmpty()) {
+            scheduleDrain();
+        }
+        if (blockedCount > 0) {
+            synchronized (blockLock) {
+                blockLock.notifyAll();
+            }
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            channel.eventLoop().execute(this::drain);
+        }
+    }
+
+    /**
+     * 在网络线程上按顺序发送等待中的调用，直到窗口再次满
+     */
+    private void drain() {
+        drainScheduled.set(false);
+        if (closed) {
+            failWaiting();
+            return;
+        }
+
+        while (!waitQueue.isEmpty() && tryAcquire(1)) {
+            Invoke invoke = waitQueue.poll();
+            if (invoke == null) {
+                permits.incrementAndGet();
+                break;
+            }
+            waitCount.decrementAndGet();
+            hold(invoke);
+            batcher.write(invoke);
+        }
+    }
+
+    /**
+     * 连接断开，等待中的调用全部以拒绝结束，阻塞的线程被唤醒后拒绝
+     * 已经写出、占用着空位的调用不会再收到结果，从登记表中取出后以失败结束
+     */
+    void close() {
+        closed = true;
+        failWaiting();
+        HOLDERS.removeAll(this, this::failWritten);
+        synchronized (blockLock) {
+            blockLock.notifyAll();
+        }
+    }
+
+    private void failWritten(long invokeId) {
+        RpcContext.failInvoke(invokeId, new ConnectionClosedException(serviceName, invokeId));
+    }
+
+    private void failWaiting() {
+        Invoke invoke;
+        while ((invoke = waitQueue.poll()) != null) {
+            waitCount.decrementAndGet();
+            long invokeId = invoke.getId();
+            invoke.recycle();
+            RpcContext.failInvoke(invokeId, new InvokeRejectedException(serviceName, invokeId, "connection closed"));
+        }
+    }
+
+    private InvokeRejectedException reject(Invoke invoke, String reason) {
+        long invokeId = invoke.getId();
+        invoke.recycle();
+        return new InvokeRejectedException(serviceName, invokeId, reason);
+    }
+
+    /**
+     * 已发送、还未收到结果的调用数
+     */
+    int getInflightCount() {
+        return windowSize - permits.get();
+    }
+
+    int getWaitCount() {
+        return waitCount.get();
+    }
+}
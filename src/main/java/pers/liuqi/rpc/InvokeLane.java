@@ -0,0 +1,333 @@
+package pers.liuqi.rpc;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundInvoker;
+import pers.liuqi.rpc.invoke.Invoke;
+import pers.liuqi.rpc.invoke.InvokeResult;
+import pers.liuqi.rpc.invoke.InvokeResultBatch;
+import pers.liuqi.rpc.invoke.Recyclable;
+import pers.liuqi.rpc.util.RuntimeLogger;
+import pers.liuqi.rpc.util.ServiceMetrics;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * <pre>
+ * 服务提供者的一条执行通道
+ * 通道内的调用在执行器上串行执行，同一时刻最多只有一个处理任务在执行器上
+ * 服务提供者按执行策略拥有一条或多条通道，并记录每条通道的队列深度
+ * 一次处理中同一条连接上得到的多个调用结果合并为一个批量结果发送，批量调用通常在同一次处理中执行完毕
+ * 远程的流式调用在通道上逐段发送，上一段写出后再排入下一次处理，见{@link ResultStream}
+ * 远程调用的结果以voidPromise写出，写出耗时由编码器在编码完成后记录，见{@link InvokeResult#onEncoded()}
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+final class InvokeLane {
+
+    private final AbstractServiceProvider provider;
+    private final Executor executor;
+
+    /**
+     * 是否已经向执行器提交了处理任务，处理任务结束后才清除，同一条通道不会有两个处理任务同时执行
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * 是否需要执行服务实现的周期任务
+     */
+    private volatile boolean tickRequested;
+
+    private final Map<Channel, Queue<Invoke>> remoteInvokeMap = new ConcurrentHashMap<>();
+    private final Queue<Invoke> localInvokeQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 等待发送下一段的流式调用
+     */
+    private final Queue<ResultStream> streamQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 队列深度统计：当前排队的调用数、历史最大排队数、已执行的调用数
+     */
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private volatile int peakQueueDepth;
+    private final LongAdder executedCount = new LongAdder();
+
+    private final Consumer<InvokeResult<Object>> localConsumer = this::finishLocal;
+
+    /**
+     * 一次处理中同一条连接上得到的调用结果，处理任务串行执行，所有连接复用同一个列表
+     * 多于一个结果时才复制到新的批量结果中发送
+     */
+    private final List<InvokeResult<Object>> pendingResults = new ArrayList<>();
+    private final Consumer<InvokeResult<Object>> remoteConsumer = pendingResults::add;
+    private final BiConsumer<Channel, Queue<Invoke>> remoteDrainer = this::drainRemote;
+
+    InvokeLane(AbstractServiceProvider provider, Executor executor) {
+        this.provider = provider;
+        this.executor = executor;
+    }
+
+    void addLocal(Invoke invoke) {
+        localInvokeQueue.add(invoke);
+        onEnqueue();
+    }
+
+    void addRemote(Channel channel, Invoke invoke) {
+        Queue<Invoke> queue = remoteInvokeMap.computeIfAbsent(channel, key -> new ConcurrentLinkedQueue<>());
+        queue.add(invoke);
+        //加入时连接已关闭、队列已被删除，没有被丢弃的调用在这里归还
+        if (remoteInvokeMap.get(channel) != queue && queue.remove(invoke)) {
+            invoke.recycle();
+            return;
+        }
+        onEnqueue();
+    }
+
+    /**
+     * 流式调用的上一段已经写出，排入下一次处理发送下一段
+     */
+    void resumeStream(ResultStream stream) {
+        streamQueue.add(stream);
+        signal();
+    }
+
+    /**
+     * 请求在此通道上执行一次服务实现的周期任务
+     */
+    void requestTick() {
+        tickRequested = true;
+        signal();
+    }
+
+    private void onEnqueue() {
+        int depth = queueDepth.incrementAndGet();
+        if (depth > peakQueueDepth) {
+            peakQueueDepth = depth;
+        }
+        signal();
+    }
+
+    /**
+     * 有新的任务时，向执行器提交一次处理任务，已经提交或者正在执行时不再重复提交
+     */
+    private void signal() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * 处理远程调用、本地调用，以及服务实现的周期任务
+     */
+    private void drain() {
+        try {
+            drain0();
+        } finally {
+            //处理结束后再清除标记，清除之前收到的调用没有提交处理任务，重新检查一次
+            scheduled.set(false);
+            if (hasPending()) {
+                signal();
+            }
+        }
+    }
+
+    private boolean hasPending() {
+        return tickRequested || queueDepth.get() > 0 || !streamQueue.isEmpty();
+    }
+
+    private void drain0() {
+        if (tickRequested) {
+            tickRequested = false;
+            provider.serviceTick();
+        }
+
+        //处理本地调用
+        if (!localInvokeQueue.isEmpty()) {
+            loopInvoke(localInvokeQueue, null, localConsumer);
+        }
+
+        //处理远程调用
+        remoteInvokeMap.forEach(remoteDrainer);
+
+        //发送流式调用的下一段
+        ResultStream stream;
+        int streamCount = streamQueue.size();
+        while (streamCount-- > 0 && (stream = streamQueue.poll()) != null) {
+            stream.sendNextChunk();
+        }
+
+        //删除不活跃的链接记录，丢弃还未执行的调用
+        for (Map.Entry<Channel, Queue<Invoke>> entry : remoteInvokeMap.entrySet()) {
+            if (!entry.getKey().isActive()) {
+                removeChannel(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * 删除连接的队列，并丢弃队列中还未执行的调用，调用者一端在连接关闭时自行结束这些调用
+     * 删除之后才丢弃，删除之前取得队列、之后才加入的调用由{@link #addRemote(Channel, Invoke)}自行归还
+     */
+    private void removeChannel(Channel channel) {
+        Queue<Invoke> queue = remoteInvokeMap.remove(channel);
+        if (queue == null) {
+            return;
+        }
+        Invoke invoke;
+        while ((invoke = queue.poll()) != null) {
+            queueDepth.decrementAndGet();
+            invoke.recycle();
+        }
+    }
+
+    /**
+     * 处理一条连接上的远程调用，跳过没有调用的连接
+     */
+    private void drainRemote(Channel channel, Queue<Invoke> queue) {
+        if (queue.isEmpty()) {
+            return;
+        }
+        loopInvoke(queue, channel, remoteConsumer);
+        if (pendingResults.size() == 1) {
+            writeResult(channel, pendingResults.get(0));
+        } else if (pendingResults.size() > 1) {
+            writeResult(channel, new InvokeResultBatch(pendingResults));
+        }
+        pendingResults.clear();
+        channel.flush();
+    }
+
+    /**
+     * 本地调用的结果直接交给调用者，没有写出耗时
+     */
+    private void finishLocal(InvokeResult<Object> result) {
+        if (result.getMethodId() >= 0) {
+            provider.onResponded(result.getMethodId(), result.getInvokeId(), result.getQueueNanos(), result.getExecuteNanos(), -1);
+        }
+        RpcContext.onInvokeFinish(result);
+    }
+
+    /**
+     * 编码器编码后统计写出耗时并归还调用结果，写出失败时不再单独处理
+     */
+    private void writeResult(Channel channel, Recyclable result) {
+        if (channel.isActive()) {
+            channel.write(result, channel.voidPromise());
+        } else {
+            result.recycle();
+        }
+    }
+
+    /**
+     * 返回CompletableFuture的远程调用，完成后单独发送调用结果
+     */
+    private void writeDeferred(Channel channel, InvokeResult<Object> result) {
+        writeResult(channel, result);
+        channel.flush();
+    }
+
+    /**
+     * 调用执行完毕后归还调用对象
+     * 返回CompletableFuture的方法，完成后本地调用交给调用者，远程调用单独发送
+     *
+     * @param channel        远程调用所在的连接，本地调用为null，流式调用的Iterator直接交给本地调用者
+     * @param resultConsumer 执行完毕的调用结果
+     */
+    private void loopInvoke(Queue<Invoke> queue, Channel channel, Consumer<InvokeResult<Object>> resultConsumer) {
+        Invoke invoke;
+        int size = queue.size();
+        while (size-- > 0 && (invoke = queue.poll()) != null) {
+            queueDepth.decrementAndGet();
+            executedCount.increment();
+            try {
+                InvokeResult<Object> invokeResult = provider.process(invoke);
+                invokeResult.setServiceId(invoke.getServiceId());
+                if (provider.isOneWay(invoke.getMethodId())) {
+                    //单向调用，调用者不等待结果
+                    invokeResult.recycle();
+                } else if (invokeResult.getResult() instanceof CompletableFuture) {
+                    CompletableFuture<?> future = (CompletableFuture<?>) invokeResult.getResult();
+                    deferResult(invoke.getId(), invoke.getServiceId(), invokeResult, future,
+                            channel == null ? localConsumer : result -> writeDeferred(channel, result));
+                    invokeResult.recycle();
+                } else if (channel != null && invokeResult.isSuccess() && provider.isStream(invoke.getMethodId())) {
+                    //流式调用，分段发送返回的Iterator
+                    Iterator<?> iterator = (Iterator<?>) invokeResult.getResult();
+                    invokeResult.recycle();
+                    new ResultStream(this, channel, invoke.getId(), invoke.getServiceId(), iterator).sendNextChunk();
+                } else {
+                    resultConsumer.accept(invokeResult);
+                }
+            } catch (Exception e) {
+                RuntimeLogger.error("process invoke result error", e);
+            } finally {
+                invoke.recycle();
+            }
+        }
+    }
+
+    /**
+     * 服务方法返回CompletableFuture时，在其完成后再发送调用结果，等待完成的时间计入执行耗时
+     */
+    private void deferResult(long invokeId, int serviceId, InvokeResult<Object> timing, CompletableFuture<?> future, Consumer<InvokeResult<Object>> resultConsumer) {
+        ServiceMetrics metrics = timing.getMetrics();
+        int methodId = timing.getMethodId();
+        long queueNanos = timing.getQueueNanos();
+        long executeNanos = timing.getExecuteNanos();
+        long readyNanos = timing.getReadyNanos();
+        future.whenComplete((result, error) -> {
+            InvokeResult<Object> invokeResult;
+            if (error != null) {
+                //异常完成时，whenComplete收到的是包装后的异常
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                RuntimeLogger.error("async invoke error", invokeId, cause);
+                invokeResult = InvokeResult.failure(invokeId, cause);
+            } else {
+                invokeResult = InvokeResult.newInstance(invokeId, (Object) result);
+            }
+            invokeResult.setServiceId(serviceId);
+            long now = System.nanoTime();
+            invokeResult.setTiming(metrics, methodId, queueNanos, executeNanos + now - readyNanos, now);
+            resultConsumer.accept(invokeResult);
+        });
+    }
+
+    /**
+     * 关闭所有调用者的连接，多路复用的连接还有其它服务在使用，不关闭
+     */
+    void closeChannels() {
+        remoteInvokeMap.keySet().stream().filter(channel -> !ServiceDispatcher.isMultiplexed(channel)).forEach(ChannelOutboundInvoker::close);
+        remoteInvokeMap.keySet().forEach(this::removeChannel);
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    int getPeakQueueDepth() {
+        return peakQueueDepth;
+    }
+
+    long getExecutedCount() {
+        return executedCount.sum();
+    }
+}
@@ -0,0 +1,19 @@
+package pers.liuqi.rpc;
+
+/**
+ * <pre>
+ * 一个服务接口有多个远程提供者时，选择本次调用使用的提供者
+ * 内置的实现见{@link BalancePolicy}，也可以通过{@link RpcUtil#setLoadBalancer(Class, LoadBalancer)}为服务接口单独指定
+ * 实现需要线程安全，每次调用都会执行，不应该分配对象
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public interface LoadBalancer {
+
+    /**
+     * @param proxies 当前可用的远程服务代理，至少有两个，只在注册中心或连接变化时重建，不能修改
+     * @return 选中的服务代理
+     */
+    AbstractServiceRemoteProxy select(AbstractServiceRemoteProxy[] proxies);
+}
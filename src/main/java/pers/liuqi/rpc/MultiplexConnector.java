@@ -0,0 +1,92 @@
+package pers.liuqi.rpc;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import pers.liuqi.rpc.invoke.InvokeResult;
+import pers.liuqi.rpc.net.CodecType;
+import pers.liuqi.rpc.net.TypeTable;
+import pers.liuqi.rpc.service.ServiceInfo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <pre>
+ * 多路复用模式下，调用者与每个远程节点只建立一条连接，由该节点上的所有服务代理共用
+ * 连接按节点地址、编码方式和压缩方式区分，第一个服务代理使用时建立，最后一个服务代理销毁时关闭
+ * 每个调用、调用结果携带服务ID，提供者一端由调用分发器交给对应的服务
+ * 调用结果按调用ID结束调用，不需要区分服务，所有连接共用一个结果处理器
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+final class MultiplexConnector {
+
+    private static final ResultHandler RESULT_HANDLER = new ResultHandler();
+
+    /**
+     * <节点地址/编码方式/压缩方式，连接>
+     */
+    private static final Map<String, RemoteConnection> CONNECTION_MAP = new HashMap<>();
+
+    private MultiplexConnector() {
+    }
+
+    /**
+     * 服务代理开始使用所在节点的连接，还没有连接时建立
+     */
+    static synchronized RemoteConnection attach(AbstractServiceRemoteProxy proxy) {
+        ServiceInfo info = proxy.getInfo();
+        CodecType codecType = CodecType.of(info.getCodec());
+        String key = connectionKey(proxy, codecType);
+        RemoteConnection connection = CONNECTION_MAP.get(key);
+        if (connection == null) {
+            String name = info.getIp() + ":" + info.getPort();
+            Bootstrap bootstrap = RemoteConnection.newBootstrap(codecType, TypeTable.EMPTY, RESULT_HANDLER, true, proxy.getCompression(), proxy.getCompressionDictionary());
+            connection = new RemoteConnection(name, bootstrap, info.getIp(), info.getPort(), true);
+            CONNECTION_MAP.put(key, connection);
+            connection.attach(proxy);
+            connection.connect();
+        } else {
+            connection.attach(proxy);
+        }
+        return connection;
+    }
+
+    /**
+     * 服务代理不再使用所在节点的连接，没有服务代理使用时关闭连接
+     */
+    static synchronized void detach(AbstractServiceRemoteProxy proxy, RemoteConnection connection) {
+        if (connection.detach(proxy)) {
+            CONNECTION_MAP.values().remove(connection);
+            connection.close();
+        }
+    }
+
+    private static String connectionKey(AbstractServiceRemoteProxy proxy, CodecType codecType) {
+        ServiceInfo info = proxy.getInfo();
+        return info.getIp() + ":" + info.getPort() + "/" + codecType.name() + "/" + proxy.getCompression().name() + "#" + proxy.getDictionaryId();
+    }
+
+    @ChannelHandler.Sharable
+    private static final class ResultHandler extends SimpleChannelInboundHandler<InvokeResult> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, InvokeResult result) throws Exception {
+            RemoteConnection.onResult(ctx.channel(), result);
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+            RemoteConnection.onWritabilityChanged(ctx.channel());
+            ctx.fireChannelWritabilityChanged();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            RemoteConnection.onException(ctx.channel(), cause);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package pers.liuqi.rpc;
+
+import pers.liuqi.rpc.config.Constant;
+import pers.liuqi.rpc.exception.ServiceInvalidException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ * 一个服务接口的所有提供者
+ * 可用的远程服务代理缓存在数组中，写时复制，只在注册中心变化、连接建立或断开时重建
+ * 选择提供者时不遍历、不过滤、不分配对象
+ * 按路由键选择时使用一致性哈希环，本地服务与远程服务一起参与，同一路由键总是选中同一个提供者
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+final class ProxyGroup {
+
+    private static final AbstractServiceRemoteProxy[] EMPTY = new AbstractServiceRemoteProxy[0];
+
+    private final Class<?> serviceInterface;
+
+    private volatile Object localService;
+    private volatile AbstractServiceRemoteProxy[] healthyProxies = EMPTY;
+    private volatile LoadBalancer balancer;
+
+    private final ConsistentHashRing hashRing = new ConsistentHashRing(Constant.HASH_RING_VIRTUAL_NODES);
+
+    ProxyGroup(Class<?> serviceInterface, LoadBalancer balancer) {
+        this.serviceInterface = serviceInterface;
+        this.balancer = balancer;
+    }
+
+    /**
+     * 按当前的服务代理重建可用列表
+     * 在锁内读取注册表的最新快照，同时发生的多次重建中后完成的总是使用较新的快照
+     *
+     * @param registry      服务代理的注册表
+     * @param localServerId 本地服务器的ID
+     */
+    synchronized void refresh(ProxyRegistry registry, String localServerId) {
+        //<服务ID， 服务代理>，可能为null
+        Map<String, Object> serviceMap = registry.get(serviceInterface);
+        hashRing.sync(serviceMap);
+        if (serviceMap == null) {
+            this.localService = null;
+            this.healthyProxies = EMPTY;
+            return;
+        }
+
+        List<AbstractServiceRemoteProxy> healthyList = new ArrayList<>(serviceMap.size());
+        for (Object service : serviceMap.values()) {
+            if (service instanceof AbstractServiceRemoteProxy && ((AbstractServiceRemoteProxy) service).isValid()) {
+                healthyList.add((AbstractServiceRemoteProxy) service);
+            }
+        }
+        this.localService = serviceMap.get(localServerId);
+        this.healthyProxies = healthyList.toArray(EMPTY);
+    }
+
+    /**
+     * 本地有提供该服务时返回本地服务，否则由负载均衡策略选择一个可用的远程服务
+     */
+    Object select() {
+        Object localService = this.localService;
+        if (localService != null) {
+            return localService;
+        }
+
+        AbstractServiceRemoteProxy[] proxies = this.healthyProxies;
+        switch (proxies.length) {
+            case 0:
+                throw new ServiceInvalidException(serviceInterface);
+            case 1:
+                return proxies[0];
+            default:
+                return balancer.select(proxies);
+        }
+    }
+
+    /**
+     * 按路由键在一致性哈希环上选择提供者
+     */
+    Object select(Object routingKey) {
+        Object service = hashRing.select(routingKey);
+        if (service == null) {
+            throw new ServiceInvalidException(serviceInterface);
+        }
+        return service;
+    }
+
+    void setBalancer(LoadBalancer balancer) {
+        this.balancer = balancer;
+    }
+}
@@ -0,0 +1,71 @@
+package pers.liuqi.rpc;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <pre>
+ * 服务代理的注册表: <服务接口类，<服务ID， 服务代理类>>
+ * 内容是不可变的快照，通过volatile引用发布，读取不加锁、不分配对象
+ * 修改时复制出新的快照再整体替换，修改之间加锁，只在注册中心变化时发生
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+final class ProxyRegistry {
+
+    private volatile Map<Class<?>, Map<String, Object>> snapshot = Collections.emptyMap();
+
+    /**
+     * @return 服务接口的所有服务代理，不可修改，不存在时返回null
+     */
+    Map<String, Object> get(Class<?> serviceInterface) {
+        return snapshot.get(serviceInterface);
+    }
+
+    Object get(Class<?> serviceInterface, String serverId) {
+        Map<String, Object> serviceMap = snapshot.get(serviceInterface);
+        return serviceMap == null ? null : serviceMap.get(serverId);
+    }
+
+    /**
+     * @return 当前的完整快照，不可修改
+     */
+    Map<Class<?>, Map<String, Object>> snapshot() {
+        return snapshot;
+    }
+
+    synchronized void put(Class<?> serviceInterface, String serverId, Object serviceProxy) {
+        Map<Class<?>, Map<String, Object>> current = this.snapshot;
+        Map<String, Object> serviceMap = current.get(serviceInterface);
+        Map<String, Object> newServiceMap = serviceMap == null ? new HashMap<>() : new HashMap<>(serviceMap);
+        newServiceMap.put(serverId, serviceProxy);
+        publish(current, serviceInterface, newServiceMap);
+    }
+
+    /**
+     * @return 被删除的服务代理，不存在时返回null
+     */
+    synchronized Object remove(Class<?> serviceInterface, String serverId) {
+        Map<Class<?>, Map<String, Object>> current = this.snapshot;
+        Map<String, Object> serviceMap = current.get(serviceInterface);
+        if (serviceMap == null || !serviceMap.containsKey(serverId)) {
+            return null;
+        }
+        Map<String, Object> newServiceMap = new HashMap<>(serviceMap);
+        Object serviceProxy = newServiceMap.remove(serverId);
+        publish(current, serviceInterface, newServiceMap);
+        return serviceProxy;
+    }
+
+    synchronized void clear() {
+        this.snapshot = Collections.emptyMap();
+    }
+
+    private void publish(Map<Class<?>, Map<String, Object>> current, Class<?> serviceInterface, Map<String, Object> newServiceMap) {
+        Map<Class<?>, Map<String, Object>> newSnapshot = new HashMap<>(current);
+        newSnapshot.put(serviceInterface, Collections.unmodifiableMap(newServiceMap));
+        this.snapshot = Collections.unmodifiableMap(newSnapshot);
+    }
+}
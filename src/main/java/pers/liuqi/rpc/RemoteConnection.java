@@ -0,0 +1,315 @@
+package pers.liuqi.rpc;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.AttributeKey;
+import io.netty.util.Timeout;
+import pers.liuqi.rpc.config.Constant;
+import pers.liuqi.rpc.config.ServiceInfoConfig;
+import pers.liuqi.rpc.invoke.Invoke;
+import pers.liuqi.rpc.invoke.InvokeResult;
+import pers.liuqi.rpc.net.BinaryMessageCodec;
+import pers.liuqi.rpc.net.CodecType;
+import pers.liuqi.rpc.net.Compression;
+import pers.liuqi.rpc.net.FrameCompressor;
+import pers.liuqi.rpc.net.LoginMessage;
+import pers.liuqi.rpc.net.TypeTable;
+import pers.liuqi.rpc.util.RuntimeLogger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * 远程服务代理与提供者之间的一条连接
+ * 多路复用时为与远程节点之间的一条连接，由该节点上的所有服务代理共用，每个服务分别登陆
+ * 连接完全异步进行，不会阻塞任何服务线程
+ * 连接失败或断开后按指数退避的间隔自动重连，连接成功后重置间隔
+ * 调用通过在途窗口限流，再通过批量发送写出，不再每个调用刷新一次
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+final class RemoteConnection {
+
+    private static final AttributeKey<InflightWindow> INFLIGHT_WINDOW_KEY = AttributeKey.valueOf(Constant.KEY_INFLIGHT_WINDOW);
+
+    /**
+     * 服务名，多路复用时为节点地址，用于日志
+     */
+    private final String name;
+    private final Bootstrap bootstrap;
+    private final String ip;
+    private final int port;
+    private final boolean multiplex;
+
+    /**
+     * 使用此连接的服务代理，多路复用时可能有多个
+     */
+    private final List<AbstractServiceRemoteProxy> proxies = new CopyOnWriteArrayList<>();
+
+    private volatile Channel channel;
+    private volatile InflightWindow window;
+
+    /**
+     * 连续失败的次数，用于计算下一次重连的间隔
+     */
+    private volatile int failCount;
+
+    private volatile Timeout reconnectTimeout;
+    private volatile boolean closed;
+
+    RemoteConnection(AbstractServiceRemoteProxy proxy, Bootstrap bootstrap, String ip, int port) {
+        this(proxy.getInfo().getName(), bootstrap, ip, port, false);
+        this.proxies.add(proxy);
+    }
+
+    RemoteConnection(String name, Bootstrap bootstrap, String ip, int port, boolean multiplex) {
+        this.name = name;
+        this.bootstrap = bootstrap;
+        this.ip = ip;
+        this.port = port;
+        this.multiplex = multiplex;
+    }
+
+    /**
+     * 创建连接使用的Bootstrap，所有连接共用客户端网络线程
+     *
+     * @param handler    处理调用结果的Handler
+     * @param dictionary 压缩使用的字典，没有时为null
+     */
+    static Bootstrap newBootstrap(CodecType codecType, TypeTable typeTable, ChannelHandler handler, boolean multiplex, Compression compression, byte[] dictionary) {
+        ServiceInfoConfig config = RpcServiceStarter.getSingleton().getConfig();
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap
+                .group(RpcContext.getClientGroup())
+                .channel(RpcServiceStarter.getSingleton().getTransport().getChannelClass())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Constant.CONNECT_TIMEOUT)
+                .option(ChannelOption.ALLOCATOR, config.getAllocator())
+                .option(ChannelOption.TCP_NODELAY, config.isTcpNoDelay())
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(config.getWriteBufferLowWaterMark(), config.getWriteBufferHighWaterMark()));
+        if (config.getSendBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+        }
+        if (config.getReceiveBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+        bootstrap
+                .handler(new ChannelInitializer<SocketChannel>() {
+
+                    @Override
+                    protected void initChannel(SocketChannel channel) throws Exception {
+                        ChannelPipeline pipeline = channel.pipeline();
+
+                        //基于长度的拆包、封包
+                        pipeline.addLast(Constant.HANDLER_FRAME_DECODER, new LengthFieldBasedFrameDecoder(config.getMaxFrameLength(), 0, Constant.PACKAGE_LENGTH, 0, Constant.PACKAGE_LENGTH));
+                        pipeline.addLast(Constant.HANDLER_FRAME_ENCODER, new LengthFieldPrepender(Constant.PACKAGE_LENGTH));
+                        String codecBaseName = Constant.HANDLER_FRAME_ENCODER;
+
+                        //按服务提供者发布的压缩方式压缩数据包，登陆消息发出后开启
+                        if (compression != Compression.NONE) {
+                            pipeline.addLast(Constant.HANDLER_COMPRESSOR, new FrameCompressor(compression, dictionary, config.getCompressThreshold(), config.getMaxFrameLength(), false));
+                            codecBaseName = Constant.HANDLER_COMPRESSOR;
+                        }
+
+                        //按服务提供者发布的编码方式进行对象的序列化反序列化
+                        codecType.addCodec(pipeline, codecBaseName, typeTable);
+                        BinaryMessageCodec binaryCodec = pipeline.get(BinaryMessageCodec.class);
+                        if (multiplex && binaryCodec != null) {
+                            binaryCodec.setMultiplex(true);
+                        }
+                        pipeline.addLast(handler);
+                    }
+                });
+        return bootstrap;
+    }
+
+    /**
+     * 发起连接，结果在连接完成后回调处理
+     */
+    void connect() {
+        if (closed) {
+            return;
+        }
+
+        bootstrap.connect(ip, port).addListener((ChannelFuture future) -> {
+            if (!future.isSuccess()) {
+                failCount++;
+                RuntimeLogger.error("connect remote service fail", name, ip, port, failCount);
+                scheduleReconnect();
+                return;
+            }
+
+            Channel channel = future.channel();
+            if (closed) {
+                channel.close();
+                return;
+            }
+
+            failCount = 0;
+            ServiceInfoConfig config = RpcServiceStarter.getSingleton().getConfig();
+            WriteBatcher batcher = new WriteBatcher(name, channel, config.getWriteBatchCount(), config.getWriteBatchBytes(), config.getWriteBatchDelay());
+            InflightWindow window = new InflightWindow(name, channel, batcher, config.getInflightWindow(),
+                    WindowFullPolicy.of(config.getWindowFullPolicy()), config.getWindowQueueSize(), config.getWindowBlockTimeout());
+            channel.attr(INFLIGHT_WINDOW_KEY).set(window);
+            this.window = window;
+            this.channel = channel;
+            for (AbstractServiceRemoteProxy proxy : proxies) {
+                login(channel, proxy);
+            }
+            proxies.forEach(AbstractServiceRemoteProxy::onConnectionChanged);
+            //断开后结束等待中的调用，并重连
+            channel.closeFuture().addListener(closeFuture -> {
+                window.close();
+                proxies.forEach(AbstractServiceRemoteProxy::onConnectionChanged);
+                scheduleReconnect();
+            });
+        });
+    }
+
+    /**
+     * 发送服务的登陆消息
+     * 多路复用时先在网络线程上登记该服务的类型表，之后发出的调用都排在登陆消息之后
+     * 登陆消息以原样发出，之后的数据包开始压缩
+     */
+    private void login(Channel channel, AbstractServiceRemoteProxy proxy) {
+        if (!multiplex) {
+            channel.writeAndFlush(proxy.newLoginMessage());
+            FrameCompressor.activate(channel);
+            return;
+        }
+
+        int serviceId = proxy.getServiceId();
+        channel.eventLoop().execute(() -> {
+            BinaryMessageCodec binaryCodec = channel.pipeline().get(BinaryMessageCodec.class);
+            if (binaryCodec != null) {
+                binaryCodec.registerTypeTable(serviceId, proxy.getTypeTable());
+            }
+            LoginMessage login = proxy.newLoginMessage();
+            login.setMultiplex(true);
+            channel.writeAndFlush(login);
+            FrameCompressor.activate(channel);
+        });
+    }
+
+    /**
+     * 多路复用时，服务代理开始使用此连接，连接已建立时立即登陆
+     */
+    void attach(AbstractServiceRemoteProxy proxy) {
+        proxies.add(proxy);
+        Channel channel = this.channel;
+        if (channel != null && channel.isActive()) {
+            login(channel, proxy);
+            proxy.onConnectionChanged();
+        }
+    }
+
+    /**
+     * 多路复用时，服务代理不再使用此连接
+     *
+     * @return 是否已经没有服务代理使用此连接
+     */
+    boolean detach(AbstractServiceRemoteProxy proxy) {
+        proxies.remove(proxy);
+        return proxies.isEmpty();
+    }
+
+    /**
+     * 按指数退避安排下一次重连，最长不超过重连间隔的上限
+     */
+    private void scheduleReconnect() {
+        if (closed) {
+            return;
+        }
+        long delay = Math.min(Constant.RE_CONNECT_INTERVAL, Constant.RE_CONNECT_INITIAL_DELAY << Math.min(failCount, 16));
+        reconnectTimeout = RpcContext.getTimer().newTimeout(timeout -> connect(), delay, TimeUnit.MILLISECONDS);
+    }
+
+    boolean isActive() {
+        Channel channel = this.channel;
+        return channel != null && channel.isActive();
+    }
+
+    /**
+     * 经过在途窗口后批量发送调用，由网络线程统一写出并刷新
+     * 被拒绝时抛出InvokeRejectedException
+     */
+    void write(Invoke invoke) {
+        window.write(invoke);
+    }
+
+    /**
+     * 发送批量调用，被拒绝的调用以异常结束已登记的回调，不抛出异常
+     */
+    void writeBatch(List<Invoke> invokes) {
+        window.writeBatch(invokes);
+    }
+
+    /**
+     * 发送单向调用，不占用在途窗口
+     */
+    void writeOneWay(Invoke invoke) {
+        window.writeOneWay(invoke);
+    }
+
+    /**
+     * 收到调用结果，归还连接上在途窗口的空位，再结束调用
+     */
+    static void onResult(Channel channel, InvokeResult<?> result) {
+        //流式调用的中间分段不归还，最后一段到达时才归还
+        if (!result.isChunk()) {
+            InflightWindow.release(result.getInvokeId());
+        }
+        RpcContext.onInvokeFinish(result);
+    }
+
+    /**
+     * 数据包超过长度上限时已被丢弃，其中的调用只能等待超时后结束并归还窗口的空位，关闭连接后重连
+     */
+    static void onException(Channel channel, Throwable cause) {
+        RuntimeLogger.error("remote connection error", channel.remoteAddress(), cause);
+        if (cause instanceof TooLongFrameException) {
+            channel.close();
+        }
+    }
+
+    /**
+     * 连接重新变为可写，继续发送在途窗口中等待的调用
+     */
+    static void onWritabilityChanged(Channel channel) {
+        InflightWindow window = channel.attr(INFLIGHT_WINDOW_KEY).get();
+        if (window != null && channel.isWritable()) {
+            window.onWritable();
+        }
+    }
+
+    int getInflightCount() {
+        InflightWindow window = this.window;
+        return window == null ? 0 : window.getInflightCount();
+    }
+
+    int getWaitCount() {
+        InflightWindow window = this.window;
+        return window == null ? 0 : window.getWaitCount();
+    }
+
+    /**
+     * 关闭连接，不再重连
+     */
+    void close() {
+        closed = true;
+        Timeout timeout = this.reconnectTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        Channel channel = this.channel;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package pers.liuqi.rpc;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import pers.liuqi.rpc.config.Constant;
+import pers.liuqi.rpc.invoke.InvokeResult;
+import pers.liuqi.rpc.util.RuntimeLogger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <pre>
+ * 流式调用在提供者一端的发送过程
+ * 服务方法返回的Iterator在所在执行通道上逐段读取，每段最多{@link Constant#STREAM_CHUNK_SIZE}个元素
+ * 中间分段以{@link InvokeResult#STATUS_CHUNK}状态发送，最后一段以成功状态发送，调用者收到后结束调用
+ * 上一段写出完成后才读取下一段，连接发送缓冲区不会因为大结果堆积，Iterator也可以按需生成元素
+ * 读取元素时抛出异常，以失败结果结束调用
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+final class ResultStream {
+
+    private final InvokeLane lane;
+    private final Channel channel;
+    private final long invokeId;
+    private final int serviceId;
+    private final Iterator<?> iterator;
+
+    ResultStream(InvokeLane lane, Channel channel, long invokeId, int serviceId, Iterator<?> iterator) {
+        this.lane = lane;
+        this.channel = channel;
+        this.invokeId = invokeId;
+        this.serviceId = serviceId;
+        this.iterator = iterator;
+    }
+
+    /**
+     * 在执行通道上读取并发送下一段，连接已断开时放弃剩余的元素
+     */
+    void sendNextChunk() {
+        if (!channel.isActive()) {
+            return;
+        }
+
+        InvokeResult<Object> invokeResult;
+        try {
+            List<Object> elements = new ArrayList<>();
+            while (iterator != null && elements.size() < Constant.STREAM_CHUNK_SIZE && iterator.hasNext()) {
+                elements.add(iterator.next());
+            }
+            if (iterator != null && iterator.hasNext()) {
+                invokeResult = InvokeResult.chunk(invokeId, elements);
+            } else {
+                invokeResult = InvokeResult.newInstance(invokeId, elements);
+            }
+        } catch (Exception e) {
+            RuntimeLogger.error("stream invoke error", invokeId, e);
+            invokeResult = InvokeResult.failure(invokeId, e);
+        }
+        invokeResult.setServiceId(serviceId);
+
+        boolean more = invokeResult.isChunk();
+        ChannelFuture future = channel.writeAndFlush(invokeResult);
+        if (more) {
+            future.addListener(writeFuture -> {
+                if (writeFuture.isSuccess()) {
+                    lane.resumeStream(this);
+                }
+            });
+        }
+    }
+}
@@ -1,15 +1,36 @@
 package pers.liuqi.rpc;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import pers.liuqi.rpc.config.Constant;
 import pers.liuqi.rpc.exception.AsyncCallBackDulplicateException;
+import pers.liuqi.rpc.exception.InvokeFailedException;
+import pers.liuqi.rpc.exception.InvokeTimeoutException;
 import pers.liuqi.rpc.invoke.CallBack;
 import pers.liuqi.rpc.invoke.Future;
 import pers.liuqi.rpc.invoke.Invoke;
 import pers.liuqi.rpc.invoke.InvokeResult;
+import pers.liuqi.rpc.invoke.StreamCallBack;
+import pers.liuqi.rpc.net.MethodTable;
+import pers.liuqi.rpc.util.PendingTable;
 import pers.liuqi.rpc.util.Recorder;
+import pers.liuqi.rpc.util.RuntimeLogger;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -29,12 +50,52 @@ public class RpcContext {
     /**
      * <服务接口类，<服务ID， 服务代理类>>
      */
-    private static Map<Class<?>, Map<String, Object>> serviceProxyMap = new HashMap<>();
+    private static ProxyRegistry proxyRegistry = new ProxyRegistry();
 
     /**
-     * 回调列表
+     * <服务接口类，可用的服务代理>，选择提供者时使用
      */
-    private static Map<Long, Future<?>> futureMap = new ConcurrentHashMap<>();
+    private static Map<Class<?>, ProxyGroup> proxyGroupMap = new ConcurrentHashMap<>();
+
+    /**
+     * 回调列表，按调用ID存取
+     */
+    private static PendingTable<Future<?>> futureMap = new PendingTable<>(Constant.PENDING_TABLE_CAPACITY);
+
+    /**
+     * 登记回调之前就已经结束的调用结果，登记回调时取走
+     */
+    private static UnclaimedResults unclaimedResults = new UnclaimedResults(Constant.UNCLAIMED_RESULT_CAPACITY);
+
+    /**
+     * <服务名称，方法表>，用于查找每个方法异步调用的超时时间
+     */
+    private static Map<String, MethodTable> methodTableMap = new ConcurrentHashMap<>();
+
+    /**
+     * 返回CompletableFuture的调用，调用结束时直接完成
+     */
+    private static PendingTable<CompletableFuture<Object>> completionMap = new PendingTable<>(Constant.PENDING_TABLE_CAPACITY);
+
+    /**
+     * 流式调用的接收者，收到最后一段或者失败时删除
+     */
+    private static PendingTable<StreamReceiver<?>> streamMap = new PendingTable<>(Constant.PENDING_TABLE_CAPACITY);
+
+    /**
+     * 完成CompletableFuture使用的执行器，默认在收到调用结果的线程上直接完成
+     */
+    private static volatile Executor completionExecutor = Runnable::run;
+
+    /**
+     * 时间轮定时器，用于服务实现的周期任务、断线重连检查等定时任务
+     */
+    private static HashedWheelTimer timer = new HashedWheelTimer(new DefaultThreadFactory("Rpc-Timer", true), Constant.TIMER_TICK_DURATION, TimeUnit.MILLISECONDS);
+
+    /**
+     * 所有远程服务代理共用的客户端网络线程，启动时按配置的传输方式创建
+     */
+    private static volatile EventLoopGroup clientGroup;
 
     /**
      * 调用发生时，生成唯一ID用
@@ -42,16 +103,33 @@ public class RpcContext {
     private static AtomicLong idBuilder = new AtomicLong(0);
 
     /**
-     * 当前线程最近一次调用的ID，使用一次后清空
+     * 当前线程最近一次调用，使用一次后清空
      */
-    private static ThreadLocal<Long> localLastId = ThreadLocal.withInitial(() -> -1L);
+    private static ThreadLocal<LastInvoke> localLastInvoke = ThreadLocal.withInitial(LastInvoke::new);
+
+    /**
+     * 当前线程所在的批量调用范围内收集的调用，<远程服务代理，调用列表>，不在范围内时为null
+     */
+    private static ThreadLocal<Map<AbstractServiceRemoteProxy, List<Invoke>>> localBatch = new ThreadLocal<>();
 
     static Map<String, AbstractServiceProvider> getServiceProviderMap() {
         return serviceProviderMap;
     }
 
-    static Map<Class<?>, Map<String, Object>> getServiceProxyMap() {
-        return serviceProxyMap;
+    static ProxyRegistry getProxyRegistry() {
+        return proxyRegistry;
+    }
+
+    static HashedWheelTimer getTimer() {
+        return timer;
+    }
+
+    static EventLoopGroup getClientGroup() {
+        return clientGroup;
+    }
+
+    static void setClientGroup(EventLoopGroup group) {
+        clientGroup = group;
     }
 
     public static AbstractServiceProvider getProvider(String serviceName) {
@@ -62,47 +140,547 @@ public class RpcContext {
         return serviceProviderMap.containsKey(serviceName);
     }
 
+    /**
+     * 本地提供的所有服务
+     */
+    public static Collection<AbstractServiceProvider> getProviders() {
+        return Collections.unmodifiableCollection(serviceProviderMap.values());
+    }
+
+    /**
+     * 服务接口的提供者分组，不存在时创建，使用配置的负载均衡策略
+     */
+    static ProxyGroup getProxyGroup(Class<?> serviceInterface) {
+        //已存在时直接读取，computeIfAbsent在已存在时仍可能加锁
+        ProxyGroup proxyGroup = proxyGroupMap.get(serviceInterface);
+        if (proxyGroup != null) {
+            return proxyGroup;
+        }
+        return proxyGroupMap.computeIfAbsent(serviceInterface, key -> {
+            String loadBalance = RpcServiceStarter.getSingleton().getConfig().getLoadBalance();
+            return new ProxyGroup(key, BalancePolicy.of(loadBalance).newBalancer());
+        });
+    }
+
+    /**
+     * 服务代理增加、删除，或者远程服务代理的连接状态变化时，重建可用列表
+     */
+    static void refreshProxyGroup(Class<?> serviceInterface) {
+        getProxyGroup(serviceInterface).refresh(proxyRegistry, RpcServiceStarter.getSingleton().getLocalServerId());
+    }
+
+    @SuppressWarnings("unchecked")
     static <T> Future<T> async(T t, CallBack<T> callBack) {
-        Long lastId = localLastId.get();
-        if (lastId == -1) {
+        LastInvoke lastInvoke = localLastInvoke.get();
+        long invokeId = lastInvoke.invokeId;
+        if (invokeId == -1) {
             throw new AsyncCallBackDulplicateException(callBack.getClass().getName());
         }
+        lastInvoke.invokeId = -1;
 
-        Future<T> future = new Future<>(callBack);
-        futureMap.put(lastId, future);
-        localLastId.set(-1L);
+        //直接执行的本地调用已经有结果
+        if (lastInvoke.direct) {
+            Future<T> future = new Future<>(callBack);
+            future.setResult((T) lastInvoke.directResult);
+            lastInvoke.direct = false;
+            lastInvoke.directResult = null;
+            return future;
+        }
+
+        //超时后从回调列表中删除，并通知回调
+        String serviceName = lastInvoke.serviceName;
+        int methodId = lastInvoke.methodId;
+        long timeoutMillis = getTimeout(serviceName, methodId);
+        Future<T> future = new Future<>(callBack, timeoutMillis);
+        futureMap.put(invokeId, future);
+        future.setExpireTimeout(timer.newTimeout(timeout -> {
+            Future<?> expired = futureMap.remove(invokeId);
+            if (expired != null) {
+                Recorder.invokeTimeout(invokeId);
+                InflightWindow.release(invokeId);
+                expired.setFailure(newTimeoutException(serviceName, methodId, invokeId, timeoutMillis));
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS));
+
+        //登记之前结果已经到达，取走暂存的结果；与结束一端的二次检查配合，结果只交给Future一次
+        if (unclaimedResults.claim(invokeId, future)) {
+            futureMap.remove(invokeId, future);
+        }
+        return future;
+    }
+
+    /**
+     * 登记一个流式调用的接收者，两段之间超过方法的超时时间未收到下一段时以InvokeTimeoutException结束
+     */
+    private static StreamReceiver<?> registerReceiver(long invokeId, String serviceName, int methodId) {
+        StreamReceiver<?> receiver = new StreamReceiver<>(invokeId, serviceName, methodId);
+        streamMap.put(invokeId, receiver);
+        receiver.scheduleExpire(receiver.timeoutMillis);
+        return receiver;
+    }
+
+    /**
+     * 登记流式调用的回调，两段之间超过方法的超时时间未收到下一段时以InvokeTimeoutException结束
+     */
+    @SuppressWarnings("unchecked")
+    static <E> void stream(Iterator<E> t, StreamCallBack<E> callBack) {
+        LastInvoke lastInvoke = localLastInvoke.get();
+        long invokeId = lastInvoke.invokeId;
+        if (invokeId == -1) {
+            throw new AsyncCallBackDulplicateException(callBack.getClass().getName());
+        }
+        lastInvoke.invokeId = -1;
+
+        //直接执行的本地调用已经有结果
+        if (lastInvoke.direct) {
+            Object result = lastInvoke.directResult;
+            lastInvoke.direct = false;
+            lastInvoke.directResult = null;
+            StreamReceiver<E> receiver = new StreamReceiver<>(invokeId, lastInvoke.serviceName, lastInvoke.methodId);
+            receiver.attach(callBack);
+            receiver.onFinish(result);
+            return;
+        }
+
+        //调用发出之前已经登记，登记回调之前收到的分段暂存在接收者中
+        StreamReceiver<E> receiver = (StreamReceiver<E>) lastInvoke.receiver;
+        lastInvoke.receiver = null;
+        if (receiver == null) {
+            receiver = (StreamReceiver<E>) registerReceiver(invokeId, lastInvoke.serviceName, lastInvoke.methodId);
+        }
+        receiver.attach(callBack);
+    }
+
+    /**
+     * 登记服务的方法表，同时登记调用者一端的统计
+     */
+    static void registerMethodTable(String serviceName, MethodTable methodTable) {
+        methodTableMap.put(serviceName, methodTable);
+        Recorder.registerCaller(serviceName, methodTable);
+    }
+
+    /**
+     * 方法异步调用的超时时间
+     */
+    private static long getTimeout(String serviceName, int methodId) {
+        MethodTable methodTable = methodTableMap.get(serviceName);
+        return methodTable == null ? Constant.CALL_BACK_EXPIRE : methodTable.getTimeout(methodId);
+    }
+
+    private static InvokeTimeoutException newTimeoutException(String serviceName, int methodId, long invokeId, long timeoutMillis) {
+        MethodTable methodTable = methodTableMap.get(serviceName);
+        String methodName = methodTable == null ? String.valueOf(methodId) : methodTable.getMethodName(methodId);
+        return new InvokeTimeoutException(serviceName, methodName, invokeId, timeoutMillis);
+    }
+
+    /**
+     * 设置完成CompletableFuture使用的执行器，例如业务的逻辑线程
+     */
+    public static void setCompletionExecutor(Executor executor) {
+        completionExecutor = executor;
+    }
+
+    /**
+     * 登记一个返回CompletableFuture的调用，需要在调用发出之前登记
+     * 超时未收到调用结果时，以InvokeTimeoutException异常完成
+     */
+    public static CompletableFuture<Object> registerCompletion(String serviceName, Invoke invoke) {
+        long invokeId = invoke.getId();
+        int methodId = invoke.getMethodId();
+        long timeoutMillis = getTimeout(serviceName, methodId);
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        completionMap.put(invokeId, future);
+        Timeout expireTimeout = timer.newTimeout(timeout -> {
+            if (completionMap.remove(invokeId, future) != null) {
+                Recorder.invokeTimeout(invokeId);
+                InflightWindow.release(invokeId);
+                InvokeTimeoutException exception = newTimeoutException(serviceName, methodId, invokeId, timeoutMillis);
+                completionExecutor.execute(() -> future.completeExceptionally(exception));
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        future.whenComplete((result, error) -> expireTimeout.cancel());
         return future;
     }
 
     /**
      * 封装服务调用参数
      */
-    public static Invoke buildInvoke(String serviceName, String methodName, Object[] methodParams) {
+    public static Invoke buildInvoke(String serviceName, int methodId, int routeHash, Object[] methodParams) {
+        return Invoke.newInstance(nextInvokeId(serviceName, methodId), methodId, routeHash, methodParams);
+    }
+
+    /**
+     * 封装服务调用参数，参数已经按方法签名编码
+     */
+    public static Invoke buildInvoke(String serviceName, int methodId, int routeHash, ByteBuf paramData) {
+        return Invoke.newInstance(nextInvokeId(serviceName, methodId), methodId, routeHash, paramData);
+    }
+
+    /**
+     * 封装单向调用，只分配调用ID，不登记回调，只计入调用数
+     */
+    public static Invoke buildOneWayInvoke(String serviceName, int methodId, int routeHash, Object[] methodParams) {
+        Recorder.invokeOneWay(serviceName, methodId);
+        return Invoke.newInstance(nextOneWayInvokeId(), methodId, routeHash, methodParams);
+    }
+
+    /**
+     * 封装单向调用，参数已经按方法签名编码
+     */
+    public static Invoke buildOneWayInvoke(String serviceName, int methodId, int routeHash, ByteBuf paramData) {
+        Recorder.invokeOneWay(serviceName, methodId);
+        return Invoke.newInstance(nextOneWayInvokeId(), methodId, routeHash, paramData);
+    }
+
+    /**
+     * 服务ID，由服务名的哈希值得到，调用者与提供者各自计算，结果一致
+     */
+    public static int serviceId(String serviceName) {
+        return serviceName.hashCode();
+    }
+
+    /**
+     * 路由键的哈希值
+     */
+    public static int routeHash(Object routeKey) {
+        return routeKey == null ? 0 : routeKey.hashCode();
+    }
+
+    /**
+     * 没有路由键的方法，随机分配
+     */
+    public static int randomRouteHash() {
+        return ThreadLocalRandom.current().nextInt();
+    }
+
+    private static long nextInvokeId(String serviceName, int methodId) {
         long invokeId = idBuilder.incrementAndGet();
-        localLastId.set(invokeId);
+        LastInvoke lastInvoke = localLastInvoke.get();
+        lastInvoke.invokeId = invokeId;
+        lastInvoke.serviceName = serviceName;
+        lastInvoke.methodId = methodId;
+        lastInvoke.direct = false;
+        lastInvoke.directResult = null;
 
-        Recorder.invokeStart(serviceName, methodName, invokeId);
-        return new Invoke(invokeId, methodName, methodParams);
+        Recorder.invokeStart(serviceName, methodId, invokeId);
+        registerPending(lastInvoke, invokeId, serviceName, methodId);
+        return invokeId;
     }
 
     /**
-     * 异步调用结束
+     * <pre>
+     * 流式调用在调用发出之前登记接收者，本地调用和回环的远程调用可能在调用线程登记回调之前就已经收到分段
+     * 其他调用不预先登记，登记回调之前结束的结果暂存在unclaimedResults中，由RpcUtil.async取走
+     * 返回CompletableFuture的调用由registerCompletion登记
+     * </pre>
+     */
+    private static void registerPending(LastInvoke lastInvoke, long invokeId, String serviceName, int methodId) {
+        lastInvoke.receiver = null;
+        MethodTable methodTable = methodTableMap.get(serviceName);
+        if (methodTable != null && methodTable.isStream(methodId)) {
+            lastInvoke.receiver = registerReceiver(invokeId, serviceName, methodId);
+        }
+    }
+
+    /**
+     * 单向调用之后不允许再登记回调，避免回调误登记到之前的调用上
+     */
+    private static long nextOneWayInvokeId() {
+        localLastInvoke.get().clear();
+        return idBuilder.incrementAndGet();
+    }
+
+    /**
+     * 本地代理在调用线程上直接执行了服务方法，记录返回值，之后的RpcUtil.async直接使用
+     */
+    public static void directInvoked(String serviceName, int methodId, Object result) {
+        LastInvoke lastInvoke = localLastInvoke.get();
+        lastInvoke.invokeId = idBuilder.incrementAndGet();
+        lastInvoke.serviceName = serviceName;
+        lastInvoke.methodId = methodId;
+        lastInvoke.direct = true;
+        lastInvoke.directResult = result;
+        lastInvoke.receiver = null;
+    }
+
+    /**
+     * 异步调用结束，处理完毕后归还调用结果对象
+     * 调用失败时，以提供者一端的异常摘要结束调用
      */
     @SuppressWarnings("unchecked")
     public static <T> void onInvokeFinish(InvokeResult<T> invokeResult) {
-        Future<T> future = (Future<T>) futureMap.remove(invokeResult.getInvokeId());
+        //流式调用的中间分段，调用还未结束
+        if (invokeResult.isChunk()) {
+            StreamReceiver<?> receiver = streamMap.get(invokeResult.getInvokeId());
+            if (receiver != null) {
+                receiver.onChunk(invokeResult.getResult());
+            }
+            invokeResult.recycle();
+            return;
+        }
+
+        InvokeFailedException failure = invokeResult.isSuccess() ? null :
+                new InvokeFailedException(invokeResult.getInvokeId(), invokeResult.getErrorType(), invokeResult.getErrorMessage());
+
+        CompletableFuture<Object> completion = completionMap.remove(invokeResult.getInvokeId());
+        if (completion != null) {
+            T result = invokeResult.getResult();
+            if (failure != null) {
+                completionExecutor.execute(() -> completion.completeExceptionally(failure));
+            } else {
+                completionExecutor.execute(() -> completion.complete(result));
+            }
+        }
+
+        StreamReceiver<?> receiver = streamMap.remove(invokeResult.getInvokeId());
+        if (receiver != null) {
+            if (failure != null) {
+                receiver.onFailure(failure);
+            } else {
+                receiver.onFinish(invokeResult.getResult());
+            }
+        } else if (completion == null) {
+            finishFuture(invokeResult.getInvokeId(), invokeResult.getResult(), failure);
+        }
+        Recorder.invokeFinish(invokeResult.getInvokeId(), failure == null);
+        invokeResult.recycle();
+    }
+
+    /**
+     * 在批量调用范围内执行，范围内发往同一个提供者的调用合并为一个数据包，离开范围时发送
+     * 嵌套的范围并入最外层的范围
+     */
+    static void batch(Runnable action) {
+        if (localBatch.get() != null) {
+            action.run();
+            return;
+        }
+
+        Map<AbstractServiceRemoteProxy, List<Invoke>> batchMap = new LinkedHashMap<>();
+        localBatch.set(batchMap);
+        try {
+            action.run();
+        } finally {
+            localBatch.remove();
+            batchMap.forEach(AbstractServiceRemoteProxy::sendBatch);
+        }
+    }
+
+    /**
+     * @return 当前线程在批量调用范围内时收集调用并返回true，否则返回false
+     */
+    static boolean addToBatch(AbstractServiceRemoteProxy proxy, Invoke invoke) {
+        Map<AbstractServiceRemoteProxy, List<Invoke>> batchMap = localBatch.get();
+        if (batchMap == null) {
+            return false;
+        }
+        batchMap.computeIfAbsent(proxy, key -> new ArrayList<>()).add(invoke);
+        return true;
+    }
+
+    /**
+     * 调用没有发送出去，以异常结束已经登记的回调
+     */
+    static void failInvoke(long invokeId, Throwable cause) {
+        //调用线程上还未登记的回调，不再允许登记
+        LastInvoke lastInvoke = localLastInvoke.get();
+        if (lastInvoke.invokeId == invokeId) {
+            lastInvoke.clear();
+        }
+
+        CompletableFuture<Object> completion = completionMap.remove(invokeId);
+        if (completion != null) {
+            completionExecutor.execute(() -> completion.completeExceptionally(cause));
+        }
+        StreamReceiver<?> receiver = streamMap.remove(invokeId);
+        if (receiver != null) {
+            receiver.onFailure(cause);
+        } else if (completion == null) {
+            finishFuture(invokeId, null, cause);
+        }
+        Recorder.invokeFinish(invokeId, false);
+        InflightWindow.release(invokeId);
+    }
+
+    /**
+     * <pre>
+     * 将结果交给RpcUtil.async登记的Future，还未登记时暂存，由之后的RpcUtil.async取走
+     * 暂存之后再检查一次：暂存期间登记的Future可能没有看到暂存的结果，此时由这里取走交给它
+     * 两端都以取走暂存的结果为准，结果只会交给Future一次
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> void finishFuture(long invokeId, T result, Throwable failure) {
+        Future<T> future = (Future<T>) futureMap.remove(invokeId);
+        if (future != null) {
+            if (failure != null) {
+                future.setFailure(failure);
+            } else {
+                future.setResult(result);
+            }
+            return;
+        }
+
+        unclaimedResults.put(invokeId, result, failure);
+        future = (Future<T>) futureMap.remove(invokeId);
         if (future != null) {
-            future.setResult(invokeResult.getResult());
+            unclaimedResults.claim(invokeId, future);
         }
-        Recorder.invokeFinish(invokeResult.getInvokeId());
     }
 
     static void shutdown() {
         serviceProviderMap.clear();
-        serviceProxyMap.clear();
+        proxyRegistry.clear();
+        proxyGroupMap.clear();
         futureMap.clear();
+        unclaimedResults.clear();
+        completionMap.clear();
+        streamMap.clear();
+        methodTableMap.clear();
+        timer.stop();
+        if (clientGroup != null) {
+            clientGroup.shutdownGracefully();
+        }
 
         idBuilder = null;
-        localLastId = null;
+        localLastInvoke = null;
+        localBatch = null;
+    }
+
+    /**
+     * <pre>
+     * 流式调用在调用者一端的接收者
+     * 远程调用收到的每一段是元素列表，本地调用的结果是服务方法返回的Iterator，都逐个交给回调
+     * 每收到一段记录时间，超时检查时距上一段不足超时时间则顺延
+     * 调用发出之前创建，登记回调之前收到的分段与结束暂存起来，登记回调时按顺序交给回调
+     * 收到分段、结束与登记回调都在接收者上加锁，回调按顺序执行
+     * </pre>
+     */
+    private static final class StreamReceiver<E> {
+        private final long invokeId;
+        private final String serviceName;
+        private final int methodId;
+        private final long timeoutMillis;
+        private volatile long lastActive = System.currentTimeMillis();
+        private StreamCallBack<E> callBack;
+        private List<Runnable> deferred;
+
+        private StreamReceiver(long invokeId, String serviceName, int methodId) {
+            this.invokeId = invokeId;
+            this.serviceName = serviceName;
+            this.methodId = methodId;
+            this.timeoutMillis = getTimeout(serviceName, methodId);
+        }
+
+        private synchronized void attach(StreamCallBack<E> callBack) {
+            this.callBack = callBack;
+            if (deferred != null) {
+                deferred.forEach(Runnable::run);
+                deferred = null;
+            }
+        }
+
+        /**
+         * @return 还没有登记回调时暂存事件并返回true
+         */
+        private boolean defer(Runnable event) {
+            if (callBack != null) {
+                return false;
+            }
+            if (deferred == null) {
+                deferred = new ArrayList<>();
+            }
+            deferred.add(event);
+            return true;
+        }
+
+        private void scheduleExpire(long delayMillis) {
+            timer.newTimeout(timeout -> {
+                long idle = System.currentTimeMillis() - lastActive;
+                if (idle < timeoutMillis) {
+                    scheduleExpire(timeoutMillis - idle);
+                } else if (streamMap.remove(invokeId, this) != null) {
+                    Recorder.invokeTimeout(invokeId);
+                    InflightWindow.release(invokeId);
+                    onFailure(newTimeoutException(serviceName, methodId, invokeId, timeoutMillis));
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void onChunk(Object elements) {
+            lastActive = System.currentTimeMillis();
+            if (!defer(() -> onChunk(elements))) {
+                deliver(elements);
+            }
+        }
+
+        private synchronized void onFinish(Object elements) {
+            if (defer(() -> onFinish(elements))) {
+                return;
+            }
+            if (deliver(elements)) {
+                try {
+                    callBack.onComplete();
+                } catch (Exception e) {
+                    RuntimeLogger.error("stream call back error", invokeId, e);
+                }
+            }
+        }
+
+        /**
+         * @return 回调是否全部执行成功，回调抛出异常时放弃剩余的元素，并以该异常结束
+         */
+        @SuppressWarnings("unchecked")
+        private boolean deliver(Object elements) {
+            try {
+                Iterator<?> iterator = elements instanceof Iterable ? ((Iterable<?>) elements).iterator() : (Iterator<?>) elements;
+                while (iterator != null && iterator.hasNext()) {
+                    callBack.onNext((E) iterator.next());
+                }
+                return true;
+            } catch (Exception e) {
+                RuntimeLogger.error("stream call back error", invokeId, e);
+                streamMap.remove(invokeId, this);
+                onFailure(e);
+                return false;
+            }
+        }
+
+        private synchronized void onFailure(Throwable cause) {
+            if (defer(() -> onFailure(cause))) {
+                return;
+            }
+            try {
+                callBack.onFailure(cause);
+            } catch (Exception e) {
+                RuntimeLogger.error("stream call back error", invokeId, e);
+            }
+        }
+    }
+
+    /**
+     * 线程最近一次调用的信息，异步回调登记时使用
+     */
+    private static final class LastInvoke {
+        private long invokeId = -1;
+        private String serviceName;
+        private int methodId;
+
+        /**
+         * 直接执行的本地调用，以及它的返回值
+         */
+        private boolean direct;
+        private Object directResult;
+
+        /**
+         * 调用发出之前登记的流式接收者，登记回调时使用
+         */
+        private StreamReceiver<?> receiver;
+
+        private void clear() {
+            invokeId = -1;
+            receiver = null;
+        }
     }
 }
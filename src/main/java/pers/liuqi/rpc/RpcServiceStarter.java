@@ -1,30 +1,36 @@
 package pers.liuqi.rpc;
 
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.Channel;
-import io.netty.channel.ChannelFuture;
-import io.netty.channel.ChannelInitializer;
-import io.netty.channel.ChannelPipeline;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.*;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
-import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.codec.string.StringEncoder;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.apache.commons.lang3.StringUtils;
 import pers.liuqi.rpc.config.Constant;
+import pers.liuqi.rpc.config.ServiceConfig;
 import pers.liuqi.rpc.config.ServiceInfoConfig;
 import pers.liuqi.rpc.exception.RpcServiceAlreadyStartException;
-import pers.liuqi.rpc.net.MessageCodec;
+import pers.liuqi.rpc.net.CodecSelectHandler;
+import pers.liuqi.rpc.net.CodecType;
+import pers.liuqi.rpc.net.Compression;
 import pers.liuqi.rpc.net.ServiceProviderLoginHandler;
+import pers.liuqi.rpc.net.Transport;
 import pers.liuqi.rpc.service.ServiceInfo;
 import pers.liuqi.rpc.util.DynamicClassUtil;
 import pers.liuqi.rpc.util.LauncherProperties;
+import pers.liuqi.rpc.util.Recorder;
 import pers.liuqi.rpc.util.RuntimeLogger;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 管理RPC服务的启动、停止
@@ -36,9 +42,12 @@ public class RpcServiceStarter {
     private static final RpcServiceStarter SINGLETON = new RpcServiceStarter();
 
     private ServiceInfoConfig config;
+    private Transport transport;
     private ServiceInfoManager serviceInfoManager;
 
     private ServiceProcessor serviceProcessor = new ServiceProcessor();
+    private ExecutorService workerPool;
+    private ExecutorService completionPool;
     private Channel serverChannel;
 
     private String gameId;
@@ -99,6 +108,17 @@ public class RpcServiceStarter {
         this.config = new ServiceInfoConfig(configFile, this::rebuildLocalService);
         this.config.load();
 
+        //网络传输方式，远程服务代理建立连接之前创建客户端网络线程
+        this.transport = Transport.of(this.config.getTransport());
+        RpcContext.setClientGroup(this.transport.newEventLoopGroup(this.config.getClientIoThreads(), new DefaultThreadFactory("Rpc-Client", true)));
+        RuntimeLogger.info("rpc transport", this.transport);
+
+        //完成CompletableFuture的线程
+        if (this.config.getCompletionThreads() > 0) {
+            this.completionPool = Executors.newFixedThreadPool(this.config.getCompletionThreads(), new DefaultThreadFactory("Rpc-Completion"));
+            RpcContext.setCompletionExecutor(this.completionPool);
+        }
+
         //启动服务治理功能呢
         this.serviceInfoManager = new ServiceInfoManager();
         this.serviceInfoManager.start(this.config.getZkAddress());
@@ -109,6 +129,10 @@ public class RpcServiceStarter {
         //启动服务线程
         this.serviceProcessor.start();
 
+        //定时输出统计
+        Recorder.setSlowCallThreshold(config.getSlowCallThreshold());
+        scheduleMetrics();
+
         //监听服务端口
         startNetty();
     }
@@ -118,11 +142,22 @@ public class RpcServiceStarter {
      */
     private void startNetty() throws InterruptedException {
         ServerBootstrap serverBootstrap = new ServerBootstrap();
-        NioEventLoopGroup bossGroup = new NioEventLoopGroup();
-        NioEventLoopGroup workerGroup = new NioEventLoopGroup();
+        EventLoopGroup bossGroup = transport.newEventLoopGroup(config.getBossThreads(), new DefaultThreadFactory("Rpc-Boss"));
+        EventLoopGroup workerGroup = transport.newEventLoopGroup(config.getIoThreads(), new DefaultThreadFactory("Rpc-Io"));
         serverBootstrap
                 .group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
+                .channel(transport.getServerChannelClass())
+                .option(ChannelOption.ALLOCATOR, config.getAllocator())
+                .childOption(ChannelOption.ALLOCATOR, config.getAllocator())
+                .childOption(ChannelOption.TCP_NODELAY, config.isTcpNoDelay())
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(config.getWriteBufferLowWaterMark(), config.getWriteBufferHighWaterMark()));
+        if (config.getSendBufferSize() > 0) {
+            serverBootstrap.childOption(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+        }
+        if (config.getReceiveBufferSize() > 0) {
+            serverBootstrap.childOption(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+        serverBootstrap
                 .childHandler(new ChannelInitializer<SocketChannel>() {
 
                     @Override
@@ -130,15 +165,11 @@ public class RpcServiceStarter {
                         ChannelPipeline pipeline = channel.pipeline();
 
                         //基于长度的拆包、封包
-                        pipeline.addLast(new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, Constant.PACKAGE_LENGTH, 0, Constant.PACKAGE_LENGTH));
-                        pipeline.addLast(new LengthFieldPrepender(Constant.PACKAGE_LENGTH));
-
-                        //字符串的编解码
-                        pipeline.addLast(new StringDecoder());
-                        pipeline.addLast(new StringEncoder());
+                        pipeline.addLast(Constant.HANDLER_FRAME_DECODER, new LengthFieldBasedFrameDecoder(config.getMaxFrameLength(), 0, Constant.PACKAGE_LENGTH, 0, Constant.PACKAGE_LENGTH));
+                        pipeline.addLast(Constant.HANDLER_FRAME_ENCODER, new LengthFieldPrepender(Constant.PACKAGE_LENGTH));
 
-                        //对象的序列化反序列化
-                        pipeline.addLast(new MessageCodec());
+                        //根据第一个数据包识别编码方式，加入对应的编解码器
+                        pipeline.addLast(Constant.HANDLER_CODEC_SELECTOR, new CodecSelectHandler());
                         pipeline.addLast(new ServiceProviderLoginHandler());
                     }
                 });
@@ -147,12 +178,27 @@ public class RpcServiceStarter {
         serverChannel = future.channel();
     }
 
+    private void scheduleMetrics() {
+        int interval = config.getMetricsInterval();
+        if (interval <= 0) {
+            return;
+        }
+        RpcContext.getTimer().newTimeout(timeout -> {
+            try {
+                Recorder.periodicSnapshot();
+            } catch (Exception e) {
+                RuntimeLogger.error("metrics snapshot error", e);
+            }
+            scheduleMetrics();
+        }, interval, TimeUnit.SECONDS);
+    }
+
     private synchronized void shutdown0() {
         //停止接受网络连接
         serverChannel.close();
 
         //停止远程服务接口
-        for (Map<String, Object> serviceMap : RpcContext.getServiceProxyMap().values()) {
+        for (Map<String, Object> serviceMap : RpcContext.getProxyRegistry().snapshot().values()) {
             for (Object serviceCaller : serviceMap.values()) {
                 if (serviceCaller instanceof AbstractServiceRemoteProxy) {
                     ((AbstractServiceRemoteProxy) serviceCaller).destroy();
@@ -170,6 +216,48 @@ public class RpcServiceStarter {
 
         //停止服务线程
         this.serviceProcessor.shutdown();
+        if (this.workerPool != null) {
+            this.workerPool.shutdown();
+        }
+        if (this.completionPool != null) {
+            this.completionPool.shutdown();
+        }
+    }
+
+    /**
+     * 按服务配置的执行策略，创建每条执行通道使用的执行器
+     */
+    private Executor[] buildExecutors(ServiceConfig serviceConfig) {
+        String serviceName = serviceConfig.getName();
+        switch (ExecutorPolicy.of(serviceConfig.getExecutor())) {
+            case DEDICATED:
+                return new Executor[]{startProcessor("Service-Processor-" + serviceName)};
+            case POOL:
+                return new Executor[]{getWorkerPool()};
+            case PARTITIONED: {
+                int threads = serviceConfig.getThreads() > 0 ? serviceConfig.getThreads() : Runtime.getRuntime().availableProcessors();
+                Executor[] executors = new Executor[threads];
+                for (int i = 0; i < threads; i++) {
+                    executors[i] = startProcessor("Service-Processor-" + serviceName + "-" + i);
+                }
+                return executors;
+            }
+            default:
+                return new Executor[]{serviceProcessor};
+        }
+    }
+
+    private ServiceProcessor startProcessor(String name) {
+        ServiceProcessor processor = new ServiceProcessor(name);
+        processor.start();
+        return processor;
+    }
+
+    private synchronized ExecutorService getWorkerPool() {
+        if (workerPool == null) {
+            workerPool = Executors.newFixedThreadPool(config.getWorkerThreads(), new DefaultThreadFactory("Service-Worker"));
+        }
+        return workerPool;
     }
 
     /**
@@ -177,10 +265,10 @@ public class RpcServiceStarter {
      */
     private void rebuildLocalService() {
         Map<String, AbstractServiceProvider> localServiceMap = RpcContext.getServiceProviderMap();
-        Map<String, String> serviceMap = config.getServiceMap();
-        for (Map.Entry<String, String> entry : serviceMap.entrySet()) {
-            String serviceName = entry.getKey();
-            String serviceInterface = entry.getValue();
+        Map<String, ServiceConfig> serviceMap = config.getServiceMap();
+        for (ServiceConfig serviceConfig : serviceMap.values()) {
+            String serviceName = serviceConfig.getName();
+            String serviceInterface = serviceConfig.getServiceInterface();
 
             try {
                 //未找到任何接口类
@@ -191,10 +279,13 @@ public class RpcServiceStarter {
 
                 //启动服务
                 AbstractServiceProvider invoker = DynamicClassUtil.buildServiceProvider(interfaceClass);
+                Compression compression = Compression.of(serviceConfig.getCompression());
+                invoker.setCompression(compression, loadDictionary(serviceConfig, compression));
                 invoker.getService().start();
+                invoker.start(ExecutorPolicy.of(serviceConfig.getExecutor()), buildExecutors(serviceConfig));
                 localServiceMap.put(serviceName, invoker);
                 //并通知注册中心
-                serviceInfoManager.registerService(buildLocalInfo(serviceName, serviceInterface));
+                serviceInfoManager.registerService(buildLocalInfo(serviceConfig, invoker));
             } catch (Exception e) {
                 RuntimeLogger.error((String.format("build service invoker service(%s) interfaceClass(%s) error", serviceName, serviceInterface)), e);
             }
@@ -232,17 +323,50 @@ public class RpcServiceStarter {
         return false;
     }
 
-    private ServiceInfo buildLocalInfo(String serviceName, String serviceInterface) {
+    /**
+     * 读取服务配置的压缩字典，压缩方式不支持字典时忽略
+     */
+    private byte[] loadDictionary(ServiceConfig serviceConfig, Compression compression) throws IOException {
+        if (StringUtils.isEmpty(serviceConfig.getCompressionDictionary())) {
+            return null;
+        }
+        if (!compression.supportsDictionary()) {
+            RuntimeLogger.error("compression not support dictionary, ignored", serviceConfig.getName(), compression);
+            return null;
+        }
+        return Files.readAllBytes(config.resolvePath(serviceConfig.getCompressionDictionary()).toPath());
+    }
+
+    private ServiceInfo buildLocalInfo(ServiceConfig serviceConfig, AbstractServiceProvider invoker) {
         ServiceInfo info = new ServiceInfo();
         info.setId(this.serverId);
         info.setIp(this.ip);
         info.setPort(this.port);
-        info.setName(serviceName);
-        info.setServiceInterfaceName(serviceInterface);
+        info.setName(serviceConfig.getName());
+        info.setServiceInterfaceName(serviceConfig.getServiceInterface());
         info.setAvailable(true);
+        info.setCodec(CodecType.of(serviceConfig.getCodec()).name());
+        info.setConnections(Math.max(1, serviceConfig.getConnections()));
+        info.setWeight(serviceConfig.getWeight());
+        info.setCompression(invoker.getCompression().name());
+        if (invoker.getCompressionDictionary() != null) {
+            info.setCompressionDictionary(Base64.getEncoder().encodeToString(invoker.getCompressionDictionary()));
+        }
         return info;
     }
 
+    Transport getTransport() {
+        return transport;
+    }
+
+    ServiceInfoConfig getConfig() {
+        return config;
+    }
+
+    ServiceProcessor getServiceProcessor() {
+        return serviceProcessor;
+    }
+
     boolean isLocalServer(String serverId) {
         return StringUtils.equals(serverId, getLocalServerId());
     }
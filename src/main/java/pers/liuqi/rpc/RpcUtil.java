@@ -1,13 +1,11 @@
 package pers.liuqi.rpc;
 
-import com.egls.server.utils.random.RandomUtil;
 import pers.liuqi.rpc.exception.ServiceInvalidException;
 import pers.liuqi.rpc.invoke.CallBack;
 import pers.liuqi.rpc.invoke.Future;
+import pers.liuqi.rpc.invoke.StreamCallBack;
 
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Iterator;
 
 /**
  * RPC服务使用者需要用到的接口
@@ -21,42 +19,51 @@ public class RpcUtil {
      */
     @SuppressWarnings("unchecked")
     public static <T> T getService(Class<T> clazz, String serverId) {
-        Map<String, Object> serviceMap = RpcContext.getServiceProxyMap().get(clazz);
-        if (serviceMap == null || !serviceMap.containsKey(serverId)) {
+        Object service = RpcContext.getProxyRegistry().get(clazz, serverId);
+        if (service == null) {
             throw new ServiceInvalidException(clazz);
         }
-        return (T) serviceMap.get(serverId);
+        return (T) service;
     }
 
     /**
-     * 获取指定服务接口，有多个提供者的情况下，随机选择一个
+     * 获取指定服务接口，本地有提供该服务时返回本地服务
+     * 有多个远程提供者的情况下，由负载均衡策略从可用的提供者中选择一个
      */
     @SuppressWarnings("unchecked")
     public static <T> T getService(Class<T> clazz) {
-        Map<String, Object> serviceMap = RpcContext.getServiceProxyMap().get(clazz);
-        if (serviceMap == null || serviceMap.isEmpty()) {
-            throw new ServiceInvalidException(clazz);
-        }
+        return (T) RpcContext.getProxyGroup(clazz).select();
+    }
 
-        //如果本地有提供该服务，则返回本地服务
-        Object localService = serviceMap.get(RpcServiceStarter.getSingleton().getLocalServerId());
-        if (localService != null) {
-            return (T) localService;
-        }
+    /**
+     * 获取指定服务接口，按路由键在一致性哈希环上选择提供者
+     * 同一路由键总是选中同一个提供者，提供者增加或删除时只有少量路由键会改变提供者，适合在提供者内存中保存状态的服务
+     *
+     * @param routingKey 路由键，例如公会ID、玩家ID，按hashCode计算位置
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getServiceByKey(Class<T> clazz, Object routingKey) {
+        return (T) RpcContext.getProxyGroup(clazz).select(routingKey);
+    }
 
-        //过滤掉不可用的服务网
-        List<AbstractServiceRemoteProxy> availableList = serviceMap.values().stream()
-                .filter(service -> service instanceof AbstractServiceRemoteProxy)
-                .map(service -> ((AbstractServiceRemoteProxy) service))
-                .filter(AbstractServiceRemoteProxy::isValid)
-                .collect(Collectors.toList());
-        if (availableList.isEmpty()) {
-            throw new ServiceInvalidException(clazz);
-        }
+    /**
+     * 为服务接口单独指定负载均衡策略
+     */
+    public static void setLoadBalancer(Class<?> clazz, LoadBalancer balancer) {
+        RpcContext.getProxyGroup(clazz).setBalancer(balancer);
+    }
 
-        //随机取一个
-        int index = RandomUtil.randomInt(availableList.size());
-        return ((T) availableList.stream().skip(index).findAny().orElse(null));
+    /**
+     * <pre>
+     * 批量调用，范围内发往同一个提供者的远程调用合并为一个数据包发送，提供者也合并发送调用结果
+     * 调用在离开范围时才发送，需要结果的调用应使用异步回调或者返回CompletableFuture的方法
+     * 范围内被拒绝的调用不抛出异常，以异常结束已登记的回调；单向调用、本地调用不参与合并
+     *
+     * RpcUtil.batch(() -> friendIds.forEach(id -> RpcUtil.async(friendService.getInfo(id), info -> ...)));
+     * </pre>
+     */
+    public static void batch(Runnable action) {
+        RpcContext.batch(action);
     }
 
     /**
@@ -65,4 +72,16 @@ public class RpcUtil {
     public static <T> Future<T> async(T t, CallBack<T> callBack) {
         return RpcContext.async(t, callBack);
     }
+
+    /**
+     * <pre>
+     * 流式调用，服务方法返回Iterator时，提供者分段发送元素，到达后逐个交给回调
+     * 适合排行榜、背包等一次返回大量元素的方法，单个数据包不会超过长度上限
+     *
+     * RpcUtil.stream(rankService.getRankList(rankType), new StreamCallBack<RankInfo>() {...});
+     * </pre>
+     */
+    public static <E> void stream(Iterator<E> t, StreamCallBack<E> callBack) {
+        RpcContext.stream(t, callBack);
+    }
 }
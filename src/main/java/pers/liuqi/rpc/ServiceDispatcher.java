@@ -0,0 +1,84 @@
+package pers.liuqi.rpc;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import pers.liuqi.rpc.config.Constant;
+import pers.liuqi.rpc.exception.ServiceInvalidException;
+import pers.liuqi.rpc.invoke.Invoke;
+import pers.liuqi.rpc.invoke.InvokeResult;
+import pers.liuqi.rpc.util.RuntimeLogger;
+
+/**
+ * <pre>
+ * 服务提供者一端，多路复用连接上的调用分发器
+ * 连接上每个服务登陆成功后登记服务ID，之后按调用携带的服务ID交给对应的服务提供者
+ * 按服务名查找提供者，本地服务重建后仍然有效
+ * 服务未登陆或者已经停止时，直接返回失败的调用结果，不影响连接上的其它服务
+ * 每条连接一个实例，只在网络线程上访问
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public final class ServiceDispatcher extends SimpleChannelInboundHandler<Invoke> {
+
+    private static final AttributeKey<ServiceDispatcher> DISPATCHER_KEY = AttributeKey.valueOf(Constant.KEY_SERVICE_DISPATCHER);
+
+    /**
+     * <服务ID，服务名>
+     */
+    private final IntObjectMap<String> serviceNameMap = new IntObjectHashMap<>();
+
+    /**
+     * 获取连接上的分发器，第一次获取时创建并加入管道
+     */
+    public static ServiceDispatcher of(Channel channel) {
+        ServiceDispatcher dispatcher = channel.attr(DISPATCHER_KEY).get();
+        if (dispatcher == null) {
+            dispatcher = new ServiceDispatcher();
+            channel.attr(DISPATCHER_KEY).set(dispatcher);
+            channel.pipeline().addLast(dispatcher);
+        }
+        return dispatcher;
+    }
+
+    /**
+     * 是否为多路复用的连接，这样的连接由多个服务共用，单个服务停止时不关闭
+     */
+    public static boolean isMultiplexed(Channel channel) {
+        return channel.attr(DISPATCHER_KEY).get() != null;
+    }
+
+    /**
+     * 登记登陆成功的服务
+     *
+     * @return 服务ID已经被其它服务占用时返回false
+     */
+    public boolean register(int serviceId, String serviceName) {
+        String exist = serviceNameMap.get(serviceId);
+        if (exist != null && !exist.equals(serviceName)) {
+            return false;
+        }
+        serviceNameMap.put(serviceId, serviceName);
+        return true;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, Invoke invoke) throws Exception {
+        String serviceName = serviceNameMap.get(invoke.getServiceId());
+        AbstractServiceProvider provider = serviceName == null ? null : RpcContext.getProvider(serviceName);
+        if (provider != null) {
+            provider.channelRead0(ctx, invoke);
+            return;
+        }
+
+        RuntimeLogger.error("dispatch invoke to unavailable service", invoke.getServiceId(), serviceName, ctx.channel().remoteAddress());
+        InvokeResult<Object> result = InvokeResult.failure(invoke.getId(), ServiceInvalidException.class.getName(), "service unavailable " + serviceName);
+        result.setServiceId(invoke.getServiceId());
+        invoke.recycle();
+        ctx.writeAndFlush(result, ctx.voidPromise());
+    }
+}
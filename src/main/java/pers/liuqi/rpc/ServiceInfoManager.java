@@ -12,6 +12,7 @@ import org.apache.curator.framework.recipes.cache.TreeCacheListener;
 import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.zookeeper.CreateMode;
 import pers.liuqi.rpc.config.Constant;
+import pers.liuqi.rpc.net.MethodTable;
 import pers.liuqi.rpc.service.ServiceInfo;
 import pers.liuqi.rpc.util.DynamicClassUtil;
 import pers.liuqi.rpc.util.LauncherProperties;
@@ -160,12 +161,12 @@ class ServiceInfoManager implements TreeCacheListener {
         }
 
         try {
-            Map<Class<?>, Map<String, Object>> serviceProxyMap = RpcContext.getServiceProxyMap();
-            Map<String, Object> serviceMap = serviceProxyMap.computeIfAbsent(serviceClass, key -> CollectionUtil.newHashMap());
-            if (!serviceMap.containsKey(info.getId())) {
+            ProxyRegistry proxyRegistry = RpcContext.getProxyRegistry();
+            if (proxyRegistry.get(serviceClass, info.getId()) == null) {
                 Object caller = createServiceProxy(info);
                 if (caller != null) {
-                    serviceMap.put(info.getId(), caller);
+                    proxyRegistry.put(serviceClass, info.getId(), caller);
+                    RpcContext.refreshProxyGroup(serviceClass);
                 }
             }
         } catch (Exception e) {
@@ -180,6 +181,8 @@ class ServiceInfoManager implements TreeCacheListener {
         }
 
         try {
+            //异步调用超时时间按方法表查找
+            RpcContext.registerMethodTable(info.getName(), MethodTable.of(serviceClass));
 
             //本地服务代理
             if (RpcServiceStarter.getSingleton().isLocalServer(info.getId())) {
@@ -187,8 +190,10 @@ class ServiceInfoManager implements TreeCacheListener {
                 return DynamicClassUtil.buildLocalProxy(serviceClass, invoker, info);
             }
 
-            //远程服务代理
-            return DynamicClassUtil.buildRemoteProxy(info);
+            //远程服务代理，异步建立连接
+            AbstractServiceRemoteProxy remoteProxy = DynamicClassUtil.buildRemoteProxy(info);
+            remoteProxy.start();
+            return remoteProxy;
         } catch (Exception e) {
             RuntimeLogger.error(String.format("build remote service caller error serviceInfo -> %s", info.toString()), e);
         }
@@ -204,9 +209,8 @@ class ServiceInfoManager implements TreeCacheListener {
             return;
         }
 
-        Map<Class<?>, Map<String, Object>> serviceProxyMap = RpcContext.getServiceProxyMap();
-        Map<String, Object> serviceMap = serviceProxyMap.computeIfAbsent(serviceClass, key -> CollectionUtil.newHashMap());
-        Object serviceProxy = serviceMap.remove(info.getId());
+        Object serviceProxy = RpcContext.getProxyRegistry().remove(serviceClass, info.getId());
+        RpcContext.refreshProxyGroup(serviceClass);
         if (serviceProxy instanceof AbstractServiceRemoteProxy) {
             ((AbstractServiceRemoteProxy) serviceProxy).destroy();
         }
@@ -311,6 +315,10 @@ class ServiceInfoManager implements TreeCacheListener {
                         if (serviceProxy == null || !serviceInterface.isAssignableFrom(serviceProxy.getClass())) {
                             destroyProxy(info);
                             createServiceProxyIfNotExist(info);
+                        } else if (serviceProxy instanceof AbstractServiceRemoteProxy) {
+                            //权重变化后重建可用列表
+                            ((AbstractServiceRemoteProxy) serviceProxy).setWeight(info.getWeight());
+                            RpcContext.refreshProxyGroup(serviceInterface);
                         }
                     }
 
@@ -324,12 +332,7 @@ class ServiceInfoManager implements TreeCacheListener {
     }
 
     private Object getServiceProxy(ServiceInfo info, Class<?> serviceInterfaceClass) {
-        Map<Class<?>, Map<String, Object>> serviceProxyMap = RpcContext.getServiceProxyMap();
-        Map<String, Object> serviceMap = serviceProxyMap.get(serviceInterfaceClass);
-        if (serviceMap == null) {
-            return null;
-        }
-        return serviceMap.get(info.getId());
+        return RpcContext.getProxyRegistry().get(serviceInterfaceClass, info.getId());
     }
 
     private ServiceInfo getEventData(TreeCacheEvent event) {
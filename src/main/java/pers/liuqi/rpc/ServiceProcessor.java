@@ -2,50 +2,72 @@ package pers.liuqi.rpc;
 
 import groovy.util.logging.Slf4j;
 import pers.liuqi.rpc.util.RuntimeLogger;
-import pers.liuqi.rpc.util.RuntimeLogger;
 
-import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
 
 /**
+ * <pre>
  * 执行服务调用，处理调用结果，以及服务实现的周期任务
+ * 由事件驱动，服务提供者收到调用、定时器到期时提交任务并唤醒线程，没有任务时线程挂起，不再轮询
+ * </pre>
  *
  * @author LiuQi - [Created on 2018-08-23]
  */
 @Slf4j
-class ServiceProcessor extends Thread {
+class ServiceProcessor extends Thread implements Executor {
+
+    private final Queue<Runnable> taskQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 线程是否已经或者即将挂起，提交任务时据此决定是否需要唤醒
+     */
+    private volatile boolean parked;
 
     private volatile boolean shutdown;
 
     ServiceProcessor() {
-        super("Service-Processor");
+        this("Service-Processor");
+    }
+
+    ServiceProcessor(String name) {
+        super(name);
     }
 
     synchronized void shutdown() {
         this.shutdown = true;
+        LockSupport.unpark(this);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        taskQueue.add(task);
+        if (parked) {
+            LockSupport.unpark(this);
+        }
     }
 
     @Override
     public void run() {
         while (!shutdown) {
-            try {
-                RpcContext.getServiceProviderMap().values().forEach(AbstractServiceProvider::tick);
-
-                for (Map<String, Object> serviceMap : RpcContext.getServiceProxyMap().values()) {
-                    for (Object serviceCaller : serviceMap.values()) {
-                        if (serviceCaller instanceof AbstractServiceRemoteProxy) {
-                            ((AbstractServiceRemoteProxy) serviceCaller).tick();
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                RuntimeLogger.error(e);
-            } finally {
+            Runnable task = taskQueue.poll();
+            if (task != null) {
                 try {
-                    Thread.sleep(1L);
-                } catch (InterruptedException e) {
+                    task.run();
+                } catch (Exception e) {
                     RuntimeLogger.error(e);
                 }
+                continue;
+            }
+
+            //先标记挂起再检查一次队列，避免错过挂起前提交的任务
+            parked = true;
+            if (taskQueue.isEmpty() && !shutdown) {
+                LockSupport.park(this);
             }
+            parked = false;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package pers.liuqi.rpc;
+
+import pers.liuqi.rpc.invoke.Future;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <pre>
+ * 还没有登记回调时就已经结束的调用结果
+ * 本地调用和回环的远程调用可能在调用线程执行RpcUtil.async之前就结束了，结果暂存在这里，登记回调时取走
+ * 按调用ID对容量取模直接定位槽位，新的结果覆盖旧的，从不登记回调的调用不需要清理，暂存与取走都不分配对象
+ * 暂存的过程：先以CAS将键置为写入标记占住槽位，再写入结果，最后写入键；取走时以CAS将键从调用ID置为0，同一个结果只会被取走一次
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+final class UnclaimedResults {
+
+    private static final long WRITING = -1;
+
+    private final int mask;
+    private final AtomicLongArray keys;
+    private final Object[] results;
+    private final Throwable[] failures;
+
+    /**
+     * @param capacity 槽位数量，向上取整为2的幂
+     */
+    UnclaimedResults(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.mask = size - 1;
+        this.keys = new AtomicLongArray(size);
+        this.results = new Object[size];
+        this.failures = new Throwable[size];
+    }
+
+    /**
+     * 暂存调用结果，同一个调用重复暂存时(例如连接关闭与发送失败先后结束同一个调用)以后一次为准
+     */
+    void put(long invokeId, Object result, Throwable failure) {
+        int index = (int) invokeId & mask;
+        long key;
+        do {
+            key = keys.get(index);
+        } while (key == WRITING || !keys.compareAndSet(index, key, WRITING));
+        results[index] = result;
+        failures[index] = failure;
+        keys.set(index, invokeId);
+    }
+
+    /**
+     * 取走暂存的结果并设置到Future中
+     *
+     * @return 暂存有此调用的结果时返回true
+     */
+    @SuppressWarnings("unchecked")
+    <T> boolean claim(long invokeId, Future<T> future) {
+        int index = (int) invokeId & mask;
+        if (keys.get(index) != invokeId) {
+            return false;
+        }
+        Object result = results[index];
+        Throwable failure = failures[index];
+        //读取之后槽位开始被覆盖时键已改变，CAS失败；取走后不清空结果，避免与之后的暂存交错
+        if (!keys.compareAndSet(index, invokeId, 0)) {
+            return false;
+        }
+        if (failure != null) {
+            future.setFailure(failure);
+        } else {
+            future.setResult((T) result);
+        }
+        return true;
+    }
+
+    void clear() {
+        for (int i = 0; i <= mask; i++) {
+            keys.set(i, 0);
+            results[i] = null;
+            failures[i] = null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package pers.liuqi.rpc;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * <pre>
+ * 调用者一端连接的在途窗口已满时的处理策略，在service.xml中配置
+ *
+ * QUEUE    调用进入有界的等待队列，窗口有空位时按顺序发送，队列也满时拒绝
+ * REJECT   立即拒绝
+ * BLOCK    阻塞调用线程直到窗口有空位，超时后拒绝；在网络线程上调用时按QUEUE处理
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public enum WindowFullPolicy {
+
+    QUEUE,
+    REJECT,
+    BLOCK;
+
+    /**
+     * 根据配置的名称获取策略，未配置时使用QUEUE
+     */
+    public static WindowFullPolicy of(String name) {
+        for (WindowFullPolicy policy : values()) {
+            if (StringUtils.equalsIgnoreCase(policy.name(), name)) {
+                return policy;
+            }
+        }
+        return QUEUE;
+    }
+}
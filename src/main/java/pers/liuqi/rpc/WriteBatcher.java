@@ -0,0 +1,135 @@
+package pers.liuqi.rpc;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
+import pers.liuqi.rpc.exception.InvokeRejectedException;
+import pers.liuqi.rpc.invoke.Invoke;
+import pers.liuqi.rpc.invoke.InvokeBatch;
+import pers.liuqi.rpc.invoke.Recyclable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ * 调用者一端的批量发送
+ * 调用、批量调用先进入队列，由连接所在的网络线程统一写出，每批只刷新一次，减少系统调用
+ * 以下任意条件满足时刷新：
+ * 1. 队列中的调用全部写出，即一次网络线程循环结束
+ * 2. 未刷新的调用数达到上限
+ * 3. 上次刷新以来写入的字节数达到上限
+ * 配置了最大延迟时，第一个调用入队后最多等待该时长再开始写出，以积累更多的调用
+ * 入队的调用数达到上限时不再等待延迟，立即提交一次写出任务，已经提交还未执行时不重复提交
+ * 调用由编码器编码后归还对象池，连接已断开时以拒绝结束调用的回调并归还
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+final class WriteBatcher implements Runnable {
+
+    private final String serviceName;
+    private final Channel channel;
+    private final int maxCount;
+    private final int maxBytes;
+    private final long maxDelayMicros;
+
+    private final Queue<Recyclable> pendingQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /**
+     * 是否已经向网络线程提交了写出任务，还未开始执行
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * 调用数达到上限后是否已经提交了立即写出的任务，还未开始执行
+     */
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    WriteBatcher(String serviceName, Channel channel, int maxCount, int maxBytes, long maxDelayMicros) {
+        this.serviceName = serviceName;
+        this.channel = channel;
+        this.maxCount = maxCount;
+        this.maxBytes = maxBytes;
+        this.maxDelayMicros = maxDelayMicros;
+    }
+
+    void write(Recyclable message) {
+        pendingQueue.add(message);
+        if (pendingCount.incrementAndGet() >= maxCount) {
+            //数量已达上限，不再等待延迟，立即写出
+            if (flushRequested.compareAndSet(false, true)) {
+                channel.eventLoop().execute(this);
+            }
+        } else if (scheduled.compareAndSet(false, true)) {
+            if (maxDelayMicros > 0) {
+                channel.eventLoop().schedule(this, maxDelayMicros, TimeUnit.MICROSECONDS);
+            } else {
+                channel.eventLoop().execute(this);
+            }
+        }
+    }
+
+    /**
+     * 在网络线程上写出队列中的所有调用
+     */
+    @Override
+    public void run() {
+        scheduled.set(false);
+        flushRequested.set(false);
+
+        int unFlushed = 0;
+        long unFlushedBytes = 0;
+        Recyclable message;
+        while ((message = pendingQueue.poll()) != null) {
+            pendingCount.decrementAndGet();
+
+            if (!channel.isActive()) {
+                reject(message);
+                continue;
+            }
+            //在网络线程上写入时同步编码并放入发送缓冲，缓冲增加的字节数即该调用编码后的长度
+            long before = pendingBytes();
+            channel.write(message, channel.voidPromise());
+            unFlushedBytes += pendingBytes() - before;
+
+            if (++unFlushed >= maxCount || unFlushedBytes >= maxBytes) {
+                channel.flush();
+                unFlushed = 0;
+                unFlushedBytes = 0;
+            }
+        }
+
+        if (unFlushed > 0) {
+            channel.flush();
+        }
+    }
+
+    /**
+     * 连接已断开，以拒绝结束调用的回调，同时归还占用的窗口空位
+     */
+    private void reject(Recyclable message) {
+        if (message instanceof Invoke) {
+            rejectInvoke((Invoke) message);
+        } else if (message instanceof InvokeBatch) {
+            ((InvokeBatch) message).getInvokes().forEach(this::rejectInvoke);
+        }
+        message.recycle();
+    }
+
+    private void rejectInvoke(Invoke invoke) {
+        long invokeId = invoke.getId();
+        RpcContext.failInvoke(invokeId, new InvokeRejectedException(serviceName, invokeId, "connection closed"));
+    }
+
+    /**
+     * 发送缓冲中的字节数，包括已经刷新、还未写入socket的部分
+     */
+    private long pendingBytes() {
+        ChannelOutboundBuffer outboundBuffer = channel.unsafe().outboundBuffer();
+        return outboundBuffer == null ? 0 : outboundBuffer.totalPendingWriteBytes();
+    }
+}
@@ -15,7 +15,64 @@ public class Constant {
     public static final String TEMPLATE_REMOTE_CALLER   = "remoteProxy.ftl";
 
 
-    public static final long RE_CONNECT_INTERVAL = 5000L;
+    /**
+     * 断线重连的间隔，从初始间隔开始每次失败翻倍，最长不超过重连间隔
+     */
+    public static final long RE_CONNECT_INTERVAL        = 5000L;
+    public static final long RE_CONNECT_INITIAL_DELAY   = 100L;
+
+    /**
+     * 调用者批量发送时，未刷新的调用数、字节数的默认上限
+     */
+    public static final int WRITE_BATCH_COUNT   = 64;
+    public static final int WRITE_BATCH_BYTES   = 64 * 1024;
+
+    /**
+     * 调用者每条连接的在途窗口：在途调用数上限、窗口满时等待队列的长度、阻塞等待的超时时间(毫秒)
+     */
+    public static final int INFLIGHT_WINDOW         = 4096;
+    public static final int WINDOW_QUEUE_SIZE       = 4096;
+    public static final long WINDOW_BLOCK_TIMEOUT   = 1000L;
+
+    /**
+     * 调用者连接的发送缓冲区高水位，超过后连接不可写，低水位为其一半
+     */
+    public static final int WRITE_BUFFER_HIGH_WATER_MARK = 512 * 1024;
+
+    /**
+     * 单个数据包长度的默认上限，超过时解码器丢弃该数据包，更大的结果应使用流式调用分段发送
+     */
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * 开启压缩时，超过此长度(字节)的数据包才压缩
+     */
+    public static final int COMPRESS_THRESHOLD = 1024;
+
+    /**
+     * 流式调用每段发送的元素数
+     */
+    public static final int STREAM_CHUNK_SIZE = 256;
+
+    /**
+     * 一致性哈希环上每个提供者的虚拟节点数
+     */
+    public static final int HASH_RING_VIRTUAL_NODES = 160;
+
+    /**
+     * 提供者未配置权重时的默认权重
+     */
+    public static final int DEFAULT_WEIGHT = 100;
+
+    /**
+     * 连接远程服务的超时时间，毫秒
+     */
+    public static final int CONNECT_TIMEOUT = 3000;
+
+    /**
+     * 时间轮定时器每一格的时长，毫秒
+     */
+    public static final long TIMER_TICK_DURATION = 10L;
 
     /**
      * 生成的代理类所在的包
@@ -32,16 +89,65 @@ public class Constant {
      */
     public static final String KEY_SERVICE_NAME = "service_name";
 
+    /**
+     * 附加在调用者Channel上的属性key，表示该连接的在途窗口
+     */
+    public static final String KEY_INFLIGHT_WINDOW = "inflight_window";
+
+    /**
+     * 附加在提供者Channel上的属性key，表示该连接是多路复用的连接，以及连接上的调用分发器
+     */
+    public static final String KEY_SERVICE_DISPATCHER = "service_dispatcher";
+
     /**
      * 网络数据包中的包头长度，表示整个数据包后续的长度
      */
     public static final int PACKAGE_LENGTH = 4;
 
+    /**
+     * 网络管道中各个Handler的名称
+     */
+    public static final String HANDLER_FRAME_DECODER    = "frameDecoder";
+    public static final String HANDLER_FRAME_ENCODER    = "frameEncoder";
+    public static final String HANDLER_CODEC_SELECTOR   = "codecSelector";
+    public static final String HANDLER_CODEC            = "codec";
+    public static final String HANDLER_COMPRESSOR       = "compressor";
+
     /**
      * 异步回调的超时时间，超过此时间还未受到结果，则丢弃该回调
      */
     public static final long CALL_BACK_EXPIRE = 5000;
 
+    /**
+     * 等待结果的调用表的槽位数量，同时等待的调用超过此数量时放入溢出表
+     */
+    public static final int PENDING_TABLE_CAPACITY = 1 << 18;
+
+    /**
+     * 暂存登记回调之前就已结束的调用结果的槽位数量，之后发起的调用超过此数量时旧的结果被覆盖
+     */
+    public static final int UNCLAIMED_RESULT_CAPACITY = 1 << 14;
+
+    /**
+     * 统计调用往返耗时时，记录调用开始时间的槽位数量，必须为2的幂
+     */
+    public static final int RECORDER_TRACK_CAPACITY = 1 << 16;
+
+    /**
+     * 提供者一端排队、执行、写出的总耗时超过此值(毫秒)的调用记为慢调用
+     */
+    public static final int SLOW_CALL_THRESHOLD = 100;
+
+    /**
+     * 每个统计区间内最多列出的慢调用数量，只保留总耗时最长的
+     */
+    public static final int SLOW_CALL_LIMIT = 20;
+
+    /**
+     * 调用、调用结果是否从对象池分配，启动参数-Drpc.recycle=false时关闭
+     */
+    public static final boolean RECYCLE_MESSAGE = !"false".equalsIgnoreCase(System.getProperty("rpc.recycle"));
+
 
     //@formatter:on
 }
@@ -0,0 +1,104 @@
+package pers.liuqi.rpc.config;
+
+import com.egls.server.utils.databind.xml.XmlObject;
+import com.egls.server.utils.databind.xml.annotation.XmlAttribute;
+import com.egls.server.utils.databind.xml.annotation.XmlIgnorable;
+
+/**
+ * service.xml中单个本地服务的配置
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class ServiceConfig implements XmlObject {
+
+    @XmlAttribute("name")
+    private String name;
+
+    @XmlAttribute("interface")
+    private String serviceInterface;
+
+    /**
+     * 网络消息的编码方式，json或binary，不配置时使用json
+     */
+    @XmlIgnorable
+    @XmlAttribute("codec")
+    private String codec;
+
+    /**
+     * 执行策略，single、dedicated、pool或partitioned，不配置时使用single
+     */
+    @XmlIgnorable
+    @XmlAttribute("executor")
+    private String executor;
+
+    /**
+     * 分区执行策略的线程数，不配置时使用CPU核数
+     */
+    @XmlIgnorable
+    @XmlAttribute("threads")
+    private int threads;
+
+    /**
+     * 每个调用者与此服务建立的连接数，不配置时为1
+     */
+    @XmlIgnorable
+    @XmlAttribute("connections")
+    private int connections;
+
+    /**
+     * 调用者负载均衡时的权重，不配置时使用默认权重
+     */
+    @XmlIgnorable
+    @XmlAttribute("weight")
+    private int weight;
+
+    /**
+     * 网络数据包的压缩方式，none、lz4或deflate，不配置时不压缩
+     */
+    @XmlIgnorable
+    @XmlAttribute("compression")
+    private String compression;
+
+    /**
+     * 压缩使用的字典文件，相对路径按service.xml所在的目录解析，只有deflate支持
+     */
+    @XmlIgnorable
+    @XmlAttribute("compressionDictionary")
+    private String compressionDictionary;
+
+    public String getName() {
+        return name;
+    }
+
+    public String getServiceInterface() {
+        return serviceInterface;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public String getExecutor() {
+        return executor;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public String getCompressionDictionary() {
+        return compressionDictionary;
+    }
+}
@@ -2,12 +2,18 @@ package pers.liuqi.rpc.config;
 
 
 import com.egls.server.utils.databind.xml.annotation.XmlElement;
-import com.egls.server.utils.databind.xml.annotation.XmlElementDeclineMap;
+import com.egls.server.utils.databind.xml.annotation.XmlElementCollection;
+import com.egls.server.utils.databind.xml.annotation.XmlIgnorable;
 import com.egls.server.utils.file.loader.BaseFileLoader;
 import com.egls.server.utils.file.loader.LoaderManager;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.apache.commons.lang3.StringUtils;
 import pers.liuqi.rpc.util.GameXmlObject;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -24,8 +30,155 @@ public class ServiceInfoConfig extends BaseFileLoader implements GameXmlObject {
     @XmlElement("zkAddress")
     private String zkAddress;
 
-    @XmlElementDeclineMap(element = "service", key = "name", value = "interface")
-    private LinkedHashMap<String, String> serviceMap;
+    /**
+     * 共享工作线程池的线程数，不配置时使用CPU核数
+     */
+    @XmlIgnorable
+    @XmlElement("workerThreads")
+    private int workerThreads;
+
+    /**
+     * 调用者批量发送的配置：未刷新的调用数上限、字节数上限、最大延迟(微秒)
+     */
+    @XmlIgnorable
+    @XmlElement("writeBatchCount")
+    private int writeBatchCount;
+
+    @XmlIgnorable
+    @XmlElement("writeBatchBytes")
+    private int writeBatchBytes;
+
+    @XmlIgnorable
+    @XmlElement("writeBatchDelay")
+    private long writeBatchDelay;
+
+    /**
+     * 调用者每条连接的在途窗口：在途调用数上限、窗口满时的策略(queue/reject/block)、等待队列长度、阻塞超时(毫秒)
+     */
+    @XmlIgnorable
+    @XmlElement("inflightWindow")
+    private int inflightWindow;
+
+    @XmlIgnorable
+    @XmlElement("windowFullPolicy")
+    private String windowFullPolicy;
+
+    @XmlIgnorable
+    @XmlElement("windowQueueSize")
+    private int windowQueueSize;
+
+    @XmlIgnorable
+    @XmlElement("windowBlockTimeout")
+    private long windowBlockTimeout;
+
+    /**
+     * 连接发送缓冲区的高水位、低水位(字节)，超过高水位后暂停发送，降到低水位以下后恢复，低水位不配置时为高水位的一半
+     */
+    @XmlIgnorable
+    @XmlElement("writeBufferHighWaterMark")
+    private int writeBufferHighWaterMark;
+
+    @XmlIgnorable
+    @XmlElement("writeBufferLowWaterMark")
+    private int writeBufferLowWaterMark;
+
+    /**
+     * 网络传输方式(auto/epoll/nio)，不配置时epoll可用则使用epoll
+     */
+    @XmlIgnorable
+    @XmlElement("transport")
+    private String transport;
+
+    /**
+     * 网络线程数：提供者接受连接的线程数、提供者处理连接的线程数、调用者处理连接的线程数，不配置时使用Netty的默认值
+     */
+    @XmlIgnorable
+    @XmlElement("bossThreads")
+    private int bossThreads;
+
+    @XmlIgnorable
+    @XmlElement("ioThreads")
+    private int ioThreads;
+
+    @XmlIgnorable
+    @XmlElement("clientIoThreads")
+    private int clientIoThreads;
+
+    /**
+     * 连接选项：是否禁用Nagle算法(不配置时禁用)、发送缓冲区、接收缓冲区大小(字节，不配置时使用系统默认值)
+     */
+    @XmlIgnorable
+    @XmlElement("tcpNoDelay")
+    private String tcpNoDelay;
+
+    @XmlIgnorable
+    @XmlElement("sendBufferSize")
+    private int sendBufferSize;
+
+    @XmlIgnorable
+    @XmlElement("receiveBufferSize")
+    private int receiveBufferSize;
+
+    /**
+     * 单个数据包长度的上限(字节)，超过时丢弃该数据包，不配置时为16M
+     */
+    @XmlIgnorable
+    @XmlElement("maxFrameLength")
+    private int maxFrameLength;
+
+    /**
+     * 服务开启压缩时，超过此长度(字节)的数据包才压缩，不配置时为1K
+     */
+    @XmlIgnorable
+    @XmlElement("compressThreshold")
+    private int compressThreshold;
+
+    /**
+     * 网络缓冲区的分配方式(pooled/unpooled)，不配置时使用池化的分配器
+     */
+    @XmlIgnorable
+    @XmlElement("allocator")
+    private String allocator;
+
+    /**
+     * 调用者选择提供者的负载均衡策略(round_robin/least_outstanding/power_of_two/weighted)，不配置时使用power_of_two
+     */
+    @XmlIgnorable
+    @XmlElement("loadBalance")
+    private String loadBalance;
+
+    /**
+     * 调用者是否与每个远程节点只建立一条连接，由该节点上的所有服务共用，不配置时每个服务单独建立连接
+     */
+    @XmlIgnorable
+    @XmlElement("multiplex")
+    private boolean multiplex;
+
+    /**
+     * 定时输出RPC统计的间隔(秒)，不配置时不输出，可以通过Recorder.snapshot主动获取
+     */
+    @XmlIgnorable
+    @XmlElement("metricsInterval")
+    private int metricsInterval;
+
+    /**
+     * 慢调用的阈值(毫秒)，提供者一端排队、执行、写出的总耗时超过此值的调用在定时统计中列出
+     */
+    @XmlIgnorable
+    @XmlElement("slowCallThreshold")
+    private int slowCallThreshold;
+
+    /**
+     * 完成CompletableFuture的线程数，不配置时在收到调用结果的线程上直接完成
+     */
+    @XmlIgnorable
+    @XmlElement("completionThreads")
+    private int completionThreads;
+
+    @XmlElementCollection("service")
+    private ArrayList<ServiceConfig> serviceList;
+
+    private Map<String, ServiceConfig> serviceMap = new LinkedHashMap<>();
 
     public ServiceInfoConfig(String configPath, Runnable configUpdateTask) {
         this.configPath = configPath;
@@ -36,7 +189,10 @@ public class ServiceInfoConfig extends BaseFileLoader implements GameXmlObject {
         LoaderManager.loadAndRegisterFile(configPath, this);
     }
 
-    public Map<String, String> getServiceMap() {
+    /**
+     * <服务名称，服务配置>
+     */
+    public Map<String, ServiceConfig> getServiceMap() {
         return serviceMap;
     }
 
@@ -44,9 +200,130 @@ public class ServiceInfoConfig extends BaseFileLoader implements GameXmlObject {
         return zkAddress;
     }
 
+    public int getWorkerThreads() {
+        return workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public int getWriteBatchCount() {
+        return writeBatchCount > 0 ? writeBatchCount : Constant.WRITE_BATCH_COUNT;
+    }
+
+    public int getWriteBatchBytes() {
+        return writeBatchBytes > 0 ? writeBatchBytes : Constant.WRITE_BATCH_BYTES;
+    }
+
+    public long getWriteBatchDelay() {
+        return writeBatchDelay;
+    }
+
+    public int getInflightWindow() {
+        return inflightWindow > 0 ? inflightWindow : Constant.INFLIGHT_WINDOW;
+    }
+
+    public String getWindowFullPolicy() {
+        return windowFullPolicy;
+    }
+
+    public int getWindowQueueSize() {
+        return windowQueueSize > 0 ? windowQueueSize : Constant.WINDOW_QUEUE_SIZE;
+    }
+
+    public long getWindowBlockTimeout() {
+        return windowBlockTimeout > 0 ? windowBlockTimeout : Constant.WINDOW_BLOCK_TIMEOUT;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark > 0 ? writeBufferHighWaterMark : Constant.WRITE_BUFFER_HIGH_WATER_MARK;
+    }
+
+    public int getWriteBufferLowWaterMark() {
+        int highWaterMark = getWriteBufferHighWaterMark();
+        return writeBufferLowWaterMark > 0 && writeBufferLowWaterMark <= highWaterMark ? writeBufferLowWaterMark : highWaterMark / 2;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public int getBossThreads() {
+        return bossThreads;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public int getClientIoThreads() {
+        return clientIoThreads;
+    }
+
+    public boolean isTcpNoDelay() {
+        return !StringUtils.equalsIgnoreCase(tcpNoDelay, "false");
+    }
+
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public int getMaxFrameLength() {
+        return maxFrameLength > 0 ? maxFrameLength : Constant.MAX_FRAME_LENGTH;
+    }
+
+    public int getMetricsInterval() {
+        return metricsInterval;
+    }
+
+    public int getSlowCallThreshold() {
+        return slowCallThreshold > 0 ? slowCallThreshold : Constant.SLOW_CALL_THRESHOLD;
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold > 0 ? compressThreshold : Constant.COMPRESS_THRESHOLD;
+    }
+
+    /**
+     * 配置中的相对路径，按service.xml所在的目录解析
+     */
+    public File resolvePath(String path) {
+        File file = new File(path);
+        if (file.isAbsolute()) {
+            return file;
+        }
+        return new File(new File(configPath).getAbsoluteFile().getParentFile(), path);
+    }
+
+    public ByteBufAllocator getAllocator() {
+        return StringUtils.equalsIgnoreCase(allocator, "unpooled") ? UnpooledByteBufAllocator.DEFAULT : PooledByteBufAllocator.DEFAULT;
+    }
+
+    public String getLoadBalance() {
+        return loadBalance;
+    }
+
+    public boolean isMultiplex() {
+        return multiplex;
+    }
+
+    public int getCompletionThreads() {
+        return completionThreads;
+    }
+
     @Override
     public void loadFile(File file) {
         load(file);
+
+        Map<String, ServiceConfig> serviceMap = new LinkedHashMap<>();
+        if (serviceList != null) {
+            for (ServiceConfig serviceConfig : serviceList) {
+                serviceMap.put(serviceConfig.getName(), serviceConfig);
+            }
+        }
+        this.serviceMap = serviceMap;
+
         configUpdateTask.run();
     }
 
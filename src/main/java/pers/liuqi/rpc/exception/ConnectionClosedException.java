@@ -0,0 +1,13 @@
+package pers.liuqi.rpc.exception;
+
+/**
+ * 调用已经发送，连接在收到调用结果之前断开，提供者可能已经执行了调用
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class ConnectionClosedException extends RuntimeException {
+
+    public ConnectionClosedException(String serviceName, long invokeId) {
+        super(String.format("service -> (%s), invokeId -> (%s)", serviceName, invokeId));
+    }
+}
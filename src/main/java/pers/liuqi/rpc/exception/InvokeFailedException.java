@@ -0,0 +1,23 @@
+package pers.liuqi.rpc.exception;
+
+/**
+ * 服务方法在提供者一端执行时抛出了异常，只携带异常的类名和描述
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class InvokeFailedException extends RuntimeException {
+
+    private final String errorType;
+
+    public InvokeFailedException(long invokeId, String errorType, String errorMessage) {
+        super(String.format("invokeId -> (%s), error -> (%s), message -> (%s)", invokeId, errorType, errorMessage));
+        this.errorType = errorType;
+    }
+
+    /**
+     * @return 提供者一端异常的类名
+     */
+    public String getErrorType() {
+        return errorType;
+    }
+}
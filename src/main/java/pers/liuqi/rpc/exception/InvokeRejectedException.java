@@ -0,0 +1,13 @@
+package pers.liuqi.rpc.exception;
+
+/**
+ * 调用没有发送出去，例如没有可用的连接、在途窗口已满
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class InvokeRejectedException extends RuntimeException {
+
+    public InvokeRejectedException(String serviceName, long invokeId, String reason) {
+        super(String.format("service -> (%s), invokeId -> (%s), reason -> (%s)", serviceName, invokeId, reason));
+    }
+}
@@ -0,0 +1,13 @@
+package pers.liuqi.rpc.exception;
+
+/**
+ * 异步调用超过超时时间仍未收到调用结果
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class InvokeTimeoutException extends RuntimeException {
+
+    public InvokeTimeoutException(String serviceName, String methodName, long invokeId, long timeoutMillis) {
+        super(String.format("service -> (%s), method -> (%s), invokeId -> (%s), timeout -> (%sms)", serviceName, methodName, invokeId, timeoutMillis));
+    }
+}
@@ -14,4 +14,13 @@ public interface CallBack<T> {
      */
     void call(T t);
 
+    /**
+     * 异步调用失败时执行此方法，例如超时未收到调用结果，默认不处理
+     *
+     * @param cause 失败的原因
+     */
+    default void onFailure(Throwable cause) {
+
+    }
+
 }
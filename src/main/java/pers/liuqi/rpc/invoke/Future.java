@@ -1,5 +1,6 @@
 package pers.liuqi.rpc.invoke;
 
+import io.netty.util.Timeout;
 import pers.liuqi.rpc.util.RuntimeLogger;
 import pers.liuqi.rpc.config.Constant;
 
@@ -8,6 +9,7 @@ import pers.liuqi.rpc.config.Constant;
  * 表示带有回调的异步调用
  * 当异步调用结果产生时，调用结果会被存储在此类中
  * 此类的实例，由具体的业务线程持有，并检测异步调用结果，执行异步回调
+ * 超时未收到调用结果时，由定时器设置失败原因，业务线程检测时执行失败回调
  * </pre>
  *
  * @author LiuQi - [Created on 2018-08-02]
@@ -16,16 +18,52 @@ public class Future<T> {
 
     private final CallBack<T> callBack;
     private volatile T result;
+    private volatile Throwable failure;
+    private volatile boolean completed;
     private boolean done;
     private long expireTime;
 
+    /**
+     * 超时检查的定时任务，收到调用结果后取消
+     */
+    private volatile Timeout expireTimeout;
+
     public Future(CallBack<T> callBack) {
+        this(callBack, Constant.CALL_BACK_EXPIRE);
+    }
+
+    public Future(CallBack<T> callBack, long timeoutMillis) {
         this.callBack = callBack;
-        this.expireTime = System.currentTimeMillis() + Constant.CALL_BACK_EXPIRE;
+        this.expireTime = System.currentTimeMillis() + timeoutMillis;
     }
 
     public void setResult(T result) {
         this.result = result;
+        this.completed = true;
+        cancelExpire();
+    }
+
+    /**
+     * 调用失败，例如超时
+     */
+    public void setFailure(Throwable failure) {
+        this.failure = failure;
+        this.completed = true;
+        cancelExpire();
+    }
+
+    public void setExpireTimeout(Timeout expireTimeout) {
+        this.expireTimeout = expireTimeout;
+        if (completed) {
+            cancelExpire();
+        }
+    }
+
+    private void cancelExpire() {
+        Timeout timeout = this.expireTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
     }
 
     public boolean isDone() {
@@ -45,9 +83,13 @@ public class Future<T> {
             return true;
         }
 
-        if (result != null) {
+        if (completed) {
             try {
-                callBack.call(result);
+                if (failure != null) {
+                    callBack.onFailure(failure);
+                } else {
+                    callBack.call(result);
+                }
             } catch (Exception e) {
                 RuntimeLogger.error("process invoke result error", e);
             }
@@ -1,45 +1,172 @@
 package pers.liuqi.rpc.invoke;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.util.Recycler;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import io.netty.util.ResourceLeakTracker;
+import pers.liuqi.rpc.config.Constant;
+
 import java.util.Arrays;
 
 /**
+ * <pre>
  * 封装服务调用相关参数
+ * 实例从线程本地的对象池分配，发送或执行完毕后归还，见{@link Recyclable}
+ * 泄漏检测级别不低于ADVANCED时(-Dio.netty.leakDetection.level)，检测未归还的实例
+ * </pre>
  *
  * @author LiuQi - [Created on 2018-08-02]
  */
-public class Invoke {
+public class Invoke implements Recyclable {
+
+    private static final Recycler<Invoke> RECYCLER = new Recycler<Invoke>() {
+        @Override
+        protected Invoke newObject(Handle<Invoke> handle) {
+            return new Invoke(handle);
+        }
+    };
+
+    private static final boolean LEAK_DETECTION = ResourceLeakDetector.getLevel().ordinal() >= ResourceLeakDetector.Level.ADVANCED.ordinal();
+    private static final ResourceLeakDetector<Invoke> LEAK_DETECTOR = ResourceLeakDetectorFactory.instance().newResourceLeakDetector(Invoke.class);
+
+    /**
+     * 对象池句柄，Json反序列化创建的实例为null，不归还
+     */
+    private final transient Recycler.Handle<Invoke> handle;
+    private transient ResourceLeakTracker<Invoke> leak;
 
     private long id;
-    private String methodName;
+
+    /**
+     * 服务ID，多路复用的连接上按此找到服务提供者，其余情况为0
+     */
+    private int serviceId;
+
+    /**
+     * 方法ID，由服务接口的方法表分配
+     */
+    private int methodId;
+
+    /**
+     * 路由键的哈希值，服务使用分区执行策略时按此选择执行线程
+     */
+    private int routeHash;
     private Object[] params;
 
+    /**
+     * 二进制编码时，由生成的序列化类按方法签名直接写好的参数数据，与params二选一
+     */
+    private transient ByteBuf paramData;
+
+    /**
+     * 提供者收到调用的时间(System.nanoTime)，用于统计排队等待的时间，未记录时为0
+     */
+    private transient long arrivalNanos;
+
     private Invoke() {
+        this.handle = null;
+    }
+
+    private Invoke(Recycler.Handle<Invoke> handle) {
+        this.handle = handle;
+    }
+
+    public static Invoke newInstance(long id, int methodId, int routeHash, Object[] params) {
+        Invoke invoke = newInstance(id, methodId, routeHash);
+        invoke.params = params;
+        return invoke;
+    }
+
+    public static Invoke newInstance(long id, int methodId, int routeHash, ByteBuf paramData) {
+        Invoke invoke = newInstance(id, methodId, routeHash);
+        invoke.paramData = paramData;
+        return invoke;
     }
 
-    public Invoke(long id, String methodName, Object[] params) {
-        this.id = id;
-        this.methodName = methodName;
-        this.params = params;
+    private static Invoke newInstance(long id, int methodId, int routeHash) {
+        Invoke invoke = Constant.RECYCLE_MESSAGE ? RECYCLER.get() : new Invoke();
+        invoke.id = id;
+        invoke.methodId = methodId;
+        invoke.routeHash = routeHash;
+        invoke.serviceId = 0;
+        invoke.arrivalNanos = 0;
+        if (LEAK_DETECTION && invoke.handle != null) {
+            invoke.leak = LEAK_DETECTOR.track(invoke);
+        }
+        return invoke;
     }
 
     public long getId() {
         return id;
     }
 
-    public String getMethodName() {
-        return methodName;
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(int serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    public long getArrivalNanos() {
+        return arrivalNanos;
+    }
+
+    public void setArrivalNanos(long arrivalNanos) {
+        this.arrivalNanos = arrivalNanos;
+    }
+
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public int getRouteHash() {
+        return routeHash;
     }
 
     public Object[] getParams() {
         return params;
     }
 
+    /**
+     * 取出已编码的参数数据，之后由取出者负责释放
+     */
+    public ByteBuf takeParamData() {
+        ByteBuf data = this.paramData;
+        this.paramData = null;
+        return data;
+    }
+
+    /**
+     * 释放还未被取出的参数数据
+     */
+    public void releaseParamData() {
+        ByteBuf data = takeParamData();
+        if (data != null) {
+            data.release();
+        }
+    }
+
+    @Override
+    public void recycle() {
+        releaseParamData();
+        params = null;
+        if (leak != null) {
+            leak.close(this);
+            leak = null;
+        }
+        if (handle != null) {
+            handle.recycle(this);
+        }
+    }
+
     @Override
     public String toString() {
         return "Invoke{" +
                 "id=" + id +
-                ", methodName='" + methodName + '\'' +
-                ", params=" + Arrays.toString(params) +
+                ", methodId=" + methodId +
+                ", params=" + (paramData != null ? paramData.readableBytes() + " bytes" : Arrays.toString(params)) +
                 '}';
     }
 }
@@ -0,0 +1,41 @@
+package pers.liuqi.rpc.invoke;
+
+import java.util.List;
+
+/**
+ * <pre>
+ * 同一个提供者的多个调用，合并为一个数据包发送
+ * 提供者解码后拆分为单个的调用，按原有的方式分配到执行通道上执行
+ * 编码后归还其中所有的调用对象
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class InvokeBatch implements Recyclable {
+
+    private List<Invoke> invokes;
+
+    private InvokeBatch() {
+    }
+
+    public InvokeBatch(List<Invoke> invokes) {
+        this.invokes = invokes;
+    }
+
+    public List<Invoke> getInvokes() {
+        return invokes;
+    }
+
+    @Override
+    public void recycle() {
+        if (invokes != null) {
+            invokes.forEach(Invoke::recycle);
+            invokes.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "InvokeBatch{" + "size=" + (invokes == null ? 0 : invokes.size()) + '}';
+    }
+}
@@ -1,36 +1,275 @@
 package pers.liuqi.rpc.invoke;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.util.Recycler;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import io.netty.util.ResourceLeakTracker;
+import pers.liuqi.rpc.config.Constant;
+import pers.liuqi.rpc.util.ServiceMetrics;
+
 /**
+ * <pre>
  * 封装服务调用结果
+ * 服务方法抛出异常时，调用结果只携带状态码以及异常的摘要，调用者据此立即以异常结束调用
+ * 流式调用的元素分段发送，中间分段的状态为{@link #STATUS_CHUNK}，最后一段的状态为成功
+ * 实例从线程本地的对象池分配，发送或处理完毕后归还，见{@link Recyclable}
+ * </pre>
  *
  * @author LiuQi - [Created on 2018-08-02]
  */
-public class InvokeResult<T> {
+public class InvokeResult<T> implements Recyclable {
+    //@formatter:off
+
+    public static final int STATUS_SUCCESS  = 0;
+    public static final int STATUS_ERROR    = 1;
+    public static final int STATUS_CHUNK    = 2;
+
+    //@formatter:on
+
+    @SuppressWarnings("rawtypes")
+    private static final Recycler<InvokeResult> RECYCLER = new Recycler<InvokeResult>() {
+        @Override
+        protected InvokeResult newObject(Handle<InvokeResult> handle) {
+            return new InvokeResult(handle);
+        }
+    };
+
+    private static final boolean LEAK_DETECTION = ResourceLeakDetector.getLevel().ordinal() >= ResourceLeakDetector.Level.ADVANCED.ordinal();
+    @SuppressWarnings("rawtypes")
+    private static final ResourceLeakDetector<InvokeResult> LEAK_DETECTOR = ResourceLeakDetectorFactory.instance().newResourceLeakDetector(InvokeResult.class);
+
+    /**
+     * 对象池句柄，Json反序列化创建的实例为null，不归还
+     */
+    @SuppressWarnings("rawtypes")
+    private final transient Recycler.Handle<InvokeResult> handle;
+    @SuppressWarnings("rawtypes")
+    private transient ResourceLeakTracker<InvokeResult> leak;
 
     private long invokeId;
+
+    /**
+     * 服务ID，多路复用的连接上与调用的服务ID相同，其余情况为0
+     */
+    private int serviceId;
     private T result;
 
+    /**
+     * 调用状态，失败时记录异常的类名和描述
+     */
+    private int status = STATUS_SUCCESS;
+    private String errorType;
+    private String errorMessage;
+
+    /**
+     * 二进制编码时，由生成的服务提供者直接写好的返回值数据，与result二选一
+     */
+    private transient ByteBuf resultData;
+
+    /**
+     * 提供者一端的耗时记录：所属服务的统计、方法ID、排队等待与执行的耗时、结果产生的时间(System.nanoTime)
+     * 远程调用的结果在网络线程上编码完成后统计写出耗时，见{@link #onEncoded()}
+     */
+    private transient ServiceMetrics metrics;
+    private transient int methodId = -1;
+    private transient long queueNanos;
+    private transient long executeNanos;
+    private transient long readyNanos;
+
     private InvokeResult() {
+        this.handle = null;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private InvokeResult(Recycler.Handle<InvokeResult> handle) {
+        this.handle = handle;
+    }
+
+    public static <T> InvokeResult<T> newInstance(long invokeId, T result) {
+        InvokeResult<T> invokeResult = newInstance(invokeId);
+        invokeResult.result = result;
+        return invokeResult;
+    }
+
+    /**
+     * 返回值已经编码好的调用结果
+     */
+    public static <T> InvokeResult<T> encoded(long invokeId, ByteBuf resultData) {
+        InvokeResult<T> invokeResult = newInstance(invokeId);
+        invokeResult.resultData = resultData;
+        return invokeResult;
+    }
+
+    /**
+     * 流式调用的一个中间分段，之后还有分段
+     */
+    public static <T> InvokeResult<T> chunk(long invokeId, T elements) {
+        InvokeResult<T> invokeResult = newInstance(invokeId, elements);
+        invokeResult.status = STATUS_CHUNK;
+        return invokeResult;
+    }
+
+    /**
+     * 服务方法执行失败的调用结果
+     */
+    public static <T> InvokeResult<T> failure(long invokeId, Throwable cause) {
+        return failure(invokeId, cause.getClass().getName(), cause.getMessage());
+    }
+
+    public static <T> InvokeResult<T> failure(long invokeId, String errorType, String errorMessage) {
+        InvokeResult<T> invokeResult = newInstance(invokeId);
+        invokeResult.status = STATUS_ERROR;
+        invokeResult.errorType = errorType;
+        invokeResult.errorMessage = errorMessage;
+        return invokeResult;
     }
 
-    public InvokeResult(long invokeId, T result) {
-        this.invokeId = invokeId;
-        this.result = result;
+    @SuppressWarnings("unchecked")
+    private static <T> InvokeResult<T> newInstance(long invokeId) {
+        InvokeResult<T> invokeResult = Constant.RECYCLE_MESSAGE ? (InvokeResult<T>) RECYCLER.get() : new InvokeResult<>();
+        invokeResult.invokeId = invokeId;
+        invokeResult.serviceId = 0;
+        invokeResult.methodId = -1;
+        if (LEAK_DETECTION && invokeResult.handle != null) {
+            invokeResult.leak = LEAK_DETECTOR.track(invokeResult);
+        }
+        return invokeResult;
     }
 
     public long getInvokeId() {
         return invokeId;
     }
 
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(int serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    /**
+     * 记录提供者一端的耗时
+     */
+    public void setTiming(ServiceMetrics metrics, int methodId, long queueNanos, long executeNanos, long readyNanos) {
+        this.metrics = metrics;
+        this.methodId = methodId;
+        this.queueNanos = queueNanos;
+        this.executeNanos = executeNanos;
+        this.readyNanos = readyNanos;
+    }
+
+    /**
+     * @return 没有记录耗时时为-1
+     */
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public long getQueueNanos() {
+        return queueNanos;
+    }
+
+    public long getExecuteNanos() {
+        return executeNanos;
+    }
+
+    public long getReadyNanos() {
+        return readyNanos;
+    }
+
+    public ServiceMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 编码器编码完成后调用，统计从结果产生到编码完成的写出耗时，没有耗时记录时忽略
+     * 在编码器中取时间，写出时使用voidPromise，不需要为每次写出创建监听
+     */
+    public void onEncoded() {
+        if (methodId >= 0 && metrics != null) {
+            metrics.onResponded(methodId, invokeId, queueNanos, executeNanos, System.nanoTime() - readyNanos);
+        }
+    }
+
     public T getResult() {
         return result;
     }
 
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == STATUS_SUCCESS;
+    }
+
+    public boolean isChunk() {
+        return status == STATUS_CHUNK;
+    }
+
+    public boolean isError() {
+        return status == STATUS_ERROR;
+    }
+
+    public String getErrorType() {
+        return errorType;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * 取出已编码的返回值数据，之后由取出者负责释放
+     */
+    public ByteBuf takeResultData() {
+        ByteBuf data = this.resultData;
+        this.resultData = null;
+        return data;
+    }
+
+    /**
+     * 释放还未被取出的返回值数据
+     */
+    public void releaseResultData() {
+        ByteBuf data = takeResultData();
+        if (data != null) {
+            data.release();
+        }
+    }
+
+    @Override
+    public void recycle() {
+        releaseResultData();
+        result = null;
+        metrics = null;
+        status = STATUS_SUCCESS;
+        errorType = null;
+        errorMessage = null;
+        if (leak != null) {
+            leak.close(this);
+            leak = null;
+        }
+        if (handle != null) {
+            handle.recycle(this);
+        }
+    }
+
     @Override
     public String toString() {
+        if (isError()) {
+            return "InvokeResult{" +
+                    "invokeId=" + invokeId +
+                    ", status=" + status +
+                    ", errorType=" + errorType +
+                    ", errorMessage=" + errorMessage +
+                    '}';
+        }
         return "InvokeResult{" +
                 "invokeId=" + invokeId +
-                ", result=" + result +
+                ", result=" + (resultData != null ? resultData.readableBytes() + " bytes" : result) +
                 '}';
     }
 }
@@ -0,0 +1,59 @@
+package pers.liuqi.rpc.invoke;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <pre>
+ * 提供者在一次处理中得到的同一条连接上的多个调用结果，合并为一个数据包发送
+ * 调用者解码后拆分为单个的调用结果
+ * 编码后归还其中所有的调用结果对象
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class InvokeResultBatch implements Recyclable {
+
+    private final List<InvokeResult<Object>> results;
+
+    public InvokeResultBatch() {
+        this.results = new ArrayList<>();
+    }
+
+    /**
+     * 复制调用结果列表，之后列表可以继续复用
+     */
+    public InvokeResultBatch(List<InvokeResult<Object>> results) {
+        this.results = new ArrayList<>(results);
+    }
+
+    public void add(InvokeResult<Object> result) {
+        results.add(result);
+    }
+
+    public List<InvokeResult<Object>> getResults() {
+        return results;
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * 编码器编码完成后调用，统计每个结果的写出耗时
+     */
+    public void onEncoded() {
+        results.forEach(InvokeResult::onEncoded);
+    }
+
+    @Override
+    public void recycle() {
+        results.forEach(InvokeResult::recycle);
+        results.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "InvokeResultBatch{" + "size=" + results.size() + '}';
+    }
+}
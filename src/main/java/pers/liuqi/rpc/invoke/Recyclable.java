@@ -0,0 +1,19 @@
+package pers.liuqi.rpc.invoke;
+
+/**
+ * <pre>
+ * 可以回收复用的消息对象
+ * 消息由对象池分配，最后一个使用者处理完毕后调用{@link #recycle()}归还
+ * 远程发送的消息由编码器在编码后归还，本地执行的消息由执行通道或调用结束处理归还
+ * 归还后不能再访问该对象
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public interface Recyclable {
+
+    /**
+     * 清空内容并归还到对象池
+     */
+    void recycle();
+}
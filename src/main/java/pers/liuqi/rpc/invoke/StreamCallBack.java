@@ -0,0 +1,33 @@
+package pers.liuqi.rpc.invoke;
+
+/**
+ * <pre>
+ * 流式调用的回调接口，服务方法返回Iterator时，元素分段到达后逐个交给回调
+ * 远程调用在收到分段的网络线程上回调，本地调用在服务的执行线程上回调，回调中不应阻塞
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public interface StreamCallBack<E> {
+
+    /**
+     * 收到一个元素
+     */
+    void onNext(E element);
+
+    /**
+     * 所有元素都已收到，默认不处理
+     */
+    default void onComplete() {
+
+    }
+
+    /**
+     * 流式调用失败时执行此方法，例如服务方法抛出异常、超时未收到下一段，默认不处理
+     *
+     * @param cause 失败的原因
+     */
+    default void onFailure(Throwable cause) {
+
+    }
+}
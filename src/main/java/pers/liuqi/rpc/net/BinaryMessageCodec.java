@@ -0,0 +1,407 @@
+package pers.liuqi.rpc.net;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import pers.liuqi.rpc.invoke.Invoke;
+import pers.liuqi.rpc.invoke.InvokeBatch;
+import pers.liuqi.rpc.invoke.InvokeResult;
+import pers.liuqi.rpc.invoke.InvokeResultBatch;
+import pers.liuqi.rpc.invoke.Recyclable;
+import pers.liuqi.rpc.util.RuntimeLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <pre>
+ *  二进制编解码器
+ *  将调用、调用结果直接编码到池化的ByteBuf中，不再经过字符串的中间形式
+ *  每个数据包的第一个字节表示消息类型，取值不会与Json数据包的首字符'{'冲突
+ *
+ *  登陆消息: [类型][服务名][方法签名表][类型表][是否多路复用]
+ *  调用消息: [类型][调用ID][方法ID][路由键哈希][参数格式][参数...]
+ *  调用结果: [类型][调用ID][状态][返回值]，失败时为[类型][调用ID][状态][异常类名][异常描述]
+ *  批量调用: [类型][调用个数][调用...]，每个调用不含类型，已编码的参数前带有长度
+ *  批量结果: [类型][结果个数][调用结果...]，每个调用结果不含类型
+ *
+ *  参数格式为带标签时，参数部分为[参数个数][带标签的参数...]
+ *  参数格式为已编码时，参数部分由生成的序列化类按方法签名写入，基础类型不带标签也不装箱
+ *  已编码的参数、返回值直接以组合缓冲区的形式发送，不再复制
+ *  多路复用的连接上，调用、调用结果以及批量消息在类型之后带有[服务ID]，按服务ID使用各自的类型表
+ *  批量消息中已编码的数据复制到同一个缓冲区中，解码时拆分为单个的调用、调用结果
+ *  调用、调用结果编码后即归还对象池，解码时从对象池分配
+ *  返回值无法编码时改为发送携带异常摘要的失败结果，调用者收到后以InvokeFailedException结束调用
+ *  调用无法编码时，在本连接上以失败结果结束调用者的回调，批量调用中只去掉编码失败的调用
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class BinaryMessageCodec extends MessageToMessageCodec<ByteBuf, Object> {
+    //@formatter:off
+
+    static final byte TYPE_LOGIN    = 1;
+    static final byte TYPE_INVOKE   = 2;
+    static final byte TYPE_RESULT   = 3;
+    static final byte TYPE_INVOKE_BATCH = 4;
+    static final byte TYPE_RESULT_BATCH = 5;
+
+    static final byte PARAMS_TAGGED     = 0;
+    static final byte PARAMS_ENCODED    = 1;
+
+    //@formatter:on
+
+    /**
+     * 当前连接使用的类型表，提供者一端在登陆校验通过后设置
+     */
+    private TypeTable typeTable;
+
+    /**
+     * 是否为多路复用的连接
+     */
+    private boolean multiplex;
+
+    /**
+     * 多路复用的连接上，<服务ID，类型表>，只在网络线程上访问
+     */
+    private final IntObjectMap<TypeTable> typeTableMap = new IntObjectHashMap<>();
+
+    public BinaryMessageCodec(TypeTable typeTable) {
+        this.typeTable = typeTable;
+    }
+
+    public void setTypeTable(TypeTable typeTable) {
+        this.typeTable = typeTable;
+    }
+
+    /**
+     * 切换为多路复用的消息格式，需要在网络线程上调用
+     */
+    public void setMultiplex(boolean multiplex) {
+        this.multiplex = multiplex;
+    }
+
+    /**
+     * 多路复用的连接上登记服务使用的类型表，需要在网络线程上调用
+     */
+    public void registerTypeTable(int serviceId, TypeTable typeTable) {
+        typeTableMap.put(serviceId, typeTable);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) {
+        ByteBuf buf = ctx.alloc().ioBuffer();
+        //已编码的数据，直接拼接在消息头后面
+        ByteBuf encodedData = null;
+        try {
+            if (msg instanceof Invoke) {
+                Invoke invoke = (Invoke) msg;
+                TypeTable table = writeHeader(buf, TYPE_INVOKE, invoke.getServiceId());
+                try {
+                    encodedData = writeInvoke(buf, invoke, table);
+                } catch (Exception e) {
+                    failInvoke(ctx, invoke, e);
+                    throw e;
+                }
+            } else if (msg instanceof InvokeResult) {
+                InvokeResult<?> result = (InvokeResult<?>) msg;
+                TypeTable table = writeHeader(buf, TYPE_RESULT, result.getServiceId());
+                encodedData = writeResultOrFailure(buf, result, table);
+            } else if (msg instanceof InvokeBatch) {
+                //批量调用总是属于同一个服务，调用写入单独的缓冲区，编码失败的调用不计入个数
+                List<Invoke> invokes = ((InvokeBatch) msg).getInvokes();
+                TypeTable table = writeHeader(buf, TYPE_INVOKE_BATCH, invokes.get(0).getServiceId());
+                encodedData = ctx.alloc().ioBuffer();
+                int count = 0;
+                for (Invoke invoke : invokes) {
+                    if (writeBatchedInvoke(ctx, encodedData, invoke, table)) {
+                        count++;
+                    }
+                }
+                BinaryValueCodec.writeVarInt(buf, count);
+            } else if (msg instanceof InvokeResultBatch) {
+                List<InvokeResult<Object>> results = ((InvokeResultBatch) msg).getResults();
+                TypeTable table = writeHeader(buf, TYPE_RESULT_BATCH, results.get(0).getServiceId());
+                BinaryValueCodec.writeVarInt(buf, results.size());
+                for (InvokeResult<Object> result : results) {
+                    ByteBuf resultData = writeResultOrFailure(buf, result, table);
+                    if (resultData != null) {
+                        appendEncoded(buf, resultData);
+                    }
+                }
+            } else if (msg instanceof LoginMessage) {
+                LoginMessage login = (LoginMessage) msg;
+                buf.writeByte(TYPE_LOGIN);
+                BinaryValueCodec.writeString(buf, login.getServiceName());
+                writeStringList(buf, login.getMethodSignatures());
+                writeStringList(buf, login.getTypeNames());
+                buf.writeBoolean(login.isMultiplex());
+                BinaryValueCodec.writeString(buf, login.getCompression());
+                buf.writeInt(login.getDictionaryId());
+            } else {
+                throw new IllegalArgumentException("unsupported message " + msg.getClass().getName());
+            }
+
+            if (encodedData != null) {
+                out.add(ctx.alloc().compositeBuffer(2).addComponents(true, buf, encodedData));
+            } else {
+                out.add(buf);
+            }
+            onEncoded(msg);
+        } catch (Exception e) {
+            buf.release();
+            if (encodedData != null) {
+                encodedData.release();
+            }
+            //没有输出时由编码器抛出EncoderException，交给连接的exceptionCaught记录
+            throw new EncoderException("encode -> " + msg, e);
+        } finally {
+            if (msg instanceof Recyclable) {
+                ((Recyclable) msg).recycle();
+            }
+        }
+    }
+
+    /**
+     * 写入消息类型，多路复用时再写入服务ID
+     *
+     * @return 消息使用的类型表
+     */
+    private TypeTable writeHeader(ByteBuf buf, byte type, int serviceId) {
+        buf.writeByte(type);
+        if (!multiplex) {
+            return typeTable;
+        }
+        buf.writeInt(serviceId);
+        return typeTableOf(serviceId);
+    }
+
+    private TypeTable typeTableOf(int serviceId) {
+        TypeTable table = typeTableMap.get(serviceId);
+        return table != null ? table : TypeTable.EMPTY;
+    }
+
+    /**
+     * 写入调用，不含消息头
+     *
+     * @return 已编码的参数数据，由调用者拼接在后面并负责释放，没有时返回null
+     */
+    private ByteBuf writeInvoke(ByteBuf buf, Invoke invoke, TypeTable table) {
+        BinaryValueCodec.writeVarLong(buf, invoke.getId());
+        BinaryValueCodec.writeVarInt(buf, invoke.getMethodId());
+        BinaryValueCodec.writeInt(buf, invoke.getRouteHash());
+        ByteBuf paramData = invoke.takeParamData();
+        if (paramData != null) {
+            buf.writeByte(PARAMS_ENCODED);
+            return paramData;
+        }
+        buf.writeByte(PARAMS_TAGGED);
+        Object[] params = invoke.getParams();
+        BinaryValueCodec.writeVarInt(buf, params.length);
+        for (Object param : params) {
+            BinaryValueCodec.writeValue(buf, param, table);
+        }
+        return null;
+    }
+
+    /**
+     * 批量调用中写入一个调用，已编码的参数前带有长度，由提供者延后解码
+     *
+     * @return 编码失败时回退已写入的部分、结束调用者的回调，并返回false
+     */
+    private boolean writeBatchedInvoke(ChannelHandlerContext ctx, ByteBuf buf, Invoke invoke, TypeTable table) {
+        int writerIndex = buf.writerIndex();
+        try {
+            ByteBuf paramData = writeInvoke(buf, invoke, table);
+            if (paramData != null) {
+                BinaryValueCodec.writeVarInt(buf, paramData.readableBytes());
+                appendEncoded(buf, paramData);
+            }
+            return true;
+        } catch (Exception e) {
+            buf.writerIndex(writerIndex);
+            RuntimeLogger.error("encode invoke error", invoke.getId(), e);
+            failInvoke(ctx, invoke, e);
+            return false;
+        }
+    }
+
+    /**
+     * 调用结果编码完成，统计写出耗时
+     */
+    static void onEncoded(Object msg) {
+        if (msg instanceof InvokeResult) {
+            ((InvokeResult<?>) msg).onEncoded();
+        } else if (msg instanceof InvokeResultBatch) {
+            ((InvokeResultBatch) msg).onEncoded();
+        }
+    }
+
+    /**
+     * 调用无法编码，以失败结果结束调用者的回调
+     * 失败结果在下一次网络线程循环中交给连接的入站处理，与收到的调用结果一样结束回调、归还在途窗口
+     */
+    static void failInvoke(ChannelHandlerContext ctx, Invoke invoke, Exception cause) {
+        InvokeResult<Object> failure = InvokeResult.failure(invoke.getId(), cause);
+        failure.setServiceId(invoke.getServiceId());
+        ctx.executor().execute(() -> ctx.fireChannelRead(failure));
+    }
+
+    /**
+     * 写入调用结果，返回值无法编码时回退已写入的部分，改为写入携带异常摘要的失败结果
+     *
+     * @return 已编码的返回值数据，由调用者拼接在后面并负责释放，没有时返回null
+     */
+    private ByteBuf writeResultOrFailure(ByteBuf buf, InvokeResult<?> result, TypeTable table) {
+        int writerIndex = buf.writerIndex();
+        try {
+            return writeResult(buf, result, table);
+        } catch (Exception e) {
+            RuntimeLogger.error("encode invoke result error", result.getInvokeId(), e);
+            buf.writerIndex(writerIndex);
+            InvokeResult<?> failure = InvokeResult.failure(result.getInvokeId(), e);
+            try {
+                return writeResult(buf, failure, table);
+            } finally {
+                failure.recycle();
+            }
+        }
+    }
+
+    /**
+     * 写入调用结果，不含消息头
+     *
+     * @return 已编码的返回值数据，由调用者拼接在后面并负责释放，没有时返回null
+     */
+    private ByteBuf writeResult(ByteBuf buf, InvokeResult<?> result, TypeTable table) {
+        BinaryValueCodec.writeVarLong(buf, result.getInvokeId());
+        buf.writeByte(result.getStatus());
+        if (result.isError()) {
+            BinaryValueCodec.writeString(buf, result.getErrorType());
+            BinaryValueCodec.writeString(buf, result.getErrorMessage());
+            result.releaseResultData();
+            return null;
+        }
+        ByteBuf resultData = result.takeResultData();
+        if (resultData == null) {
+            BinaryValueCodec.writeValue(buf, result.getResult(), table);
+        }
+        return resultData;
+    }
+
+    /**
+     * 批量消息中，将已编码的数据复制到消息缓冲区后释放
+     */
+    private static void appendEncoded(ByteBuf buf, ByteBuf encodedData) {
+        try {
+            buf.writeBytes(encodedData);
+        } finally {
+            encodedData.release();
+        }
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
+        byte type = msg.readByte();
+        if (type == TYPE_LOGIN) {
+            String serviceName = BinaryValueCodec.readString(msg);
+            List<String> methodSignatures = readStringList(msg);
+            List<String> typeNames = readStringList(msg);
+            LoginMessage login = new LoginMessage(serviceName, methodSignatures, typeNames);
+            login.setMultiplex(msg.readBoolean());
+            login.setCompression(BinaryValueCodec.readString(msg));
+            login.setDictionaryId(msg.readInt());
+            out.add(login);
+            return;
+        }
+
+        int serviceId = multiplex ? msg.readInt() : 0;
+        TypeTable table = multiplex ? typeTableOf(serviceId) : typeTable;
+        switch (type) {
+            case TYPE_INVOKE: {
+                out.add(readInvoke(msg, serviceId, table, false));
+                break;
+            }
+            case TYPE_RESULT: {
+                out.add(readResult(msg, serviceId, table));
+                break;
+            }
+            case TYPE_INVOKE_BATCH: {
+                int size = BinaryValueCodec.readVarInt(msg);
+                for (int i = 0; i < size; i++) {
+                    out.add(readInvoke(msg, serviceId, table, true));
+                }
+                break;
+            }
+            case TYPE_RESULT_BATCH: {
+                int size = BinaryValueCodec.readVarInt(msg);
+                for (int i = 0; i < size; i++) {
+                    out.add(readResult(msg, serviceId, table));
+                }
+                break;
+            }
+            default:
+                throw new DecoderException("unknown message type " + type);
+        }
+    }
+
+    /**
+     * @param inBatch 批量消息中已编码的参数带有长度，单个消息中的参数直到消息末尾
+     */
+    private Invoke readInvoke(ByteBuf msg, int serviceId, TypeTable table, boolean inBatch) {
+        long id = BinaryValueCodec.readVarLong(msg);
+        int methodId = BinaryValueCodec.readVarInt(msg);
+        int routeHash = BinaryValueCodec.readInt(msg);
+        Invoke invoke;
+        if (msg.readByte() == PARAMS_ENCODED) {
+            //参数留给生成的服务提供者直接解码，使用完后由其释放
+            ByteBuf paramData = inBatch ? msg.readRetainedSlice(BinaryValueCodec.readVarInt(msg)) : msg.retainedSlice();
+            invoke = Invoke.newInstance(id, methodId, routeHash, paramData);
+        } else {
+            Object[] params = new Object[BinaryValueCodec.readVarInt(msg)];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = BinaryValueCodec.readValue(msg, table);
+            }
+            invoke = Invoke.newInstance(id, methodId, routeHash, params);
+        }
+        invoke.setServiceId(serviceId);
+        return invoke;
+    }
+
+    private InvokeResult<Object> readResult(ByteBuf msg, int serviceId, TypeTable table) {
+        long invokeId = BinaryValueCodec.readVarLong(msg);
+        InvokeResult<Object> result;
+        byte status = msg.readByte();
+        if (status == InvokeResult.STATUS_ERROR) {
+            String errorType = BinaryValueCodec.readString(msg);
+            String errorMessage = BinaryValueCodec.readString(msg);
+            result = InvokeResult.failure(invokeId, errorType, errorMessage);
+        } else if (status == InvokeResult.STATUS_CHUNK) {
+            result = InvokeResult.chunk(invokeId, BinaryValueCodec.readValue(msg, table));
+        } else {
+            result = InvokeResult.newInstance(invokeId, BinaryValueCodec.readValue(msg, table));
+        }
+        result.setServiceId(serviceId);
+        return result;
+    }
+
+    private static void writeStringList(ByteBuf out, List<String> list) {
+        BinaryValueCodec.writeVarInt(out, list == null ? 0 : list.size());
+        if (list != null) {
+            list.forEach(value -> BinaryValueCodec.writeString(out, value));
+        }
+    }
+
+    private static List<String> readStringList(ByteBuf in) {
+        int size = BinaryValueCodec.readVarInt(in);
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(BinaryValueCodec.readString(in));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,457 @@
+package pers.liuqi.rpc.net;
+
+import com.egls.server.utils.databind.json.JsonObject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.DecoderException;
+import org.apache.commons.lang3.ClassUtils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * <pre>
+ * 二进制格式下数据的编解码
+ * 带标签的值：以一个字节的类型标签开头，基础类型、字符串、集合直接写成紧凑的二进制形式
+ * 对象类型通过类型表中的类型ID（不在类型表中时使用类名）标识，对象内容仍由Json序列化，与Json编解码器支持的类型一致
+ * 集合在标签之后带有实际类型，默认的ArrayList、HashSet、HashMap只占一个字节
+ * 无标签的值：供结构已知的场景直接读写，例如长度、调用ID等
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public final class BinaryValueCodec {
+    //@formatter:off
+
+    private static final byte TAG_NULL    = 0;
+    private static final byte TAG_TRUE    = 1;
+    private static final byte TAG_FALSE   = 2;
+    private static final byte TAG_BYTE    = 3;
+    private static final byte TAG_SHORT   = 4;
+    private static final byte TAG_CHAR    = 5;
+    private static final byte TAG_INT     = 6;
+    private static final byte TAG_LONG    = 7;
+    private static final byte TAG_FLOAT   = 8;
+    private static final byte TAG_DOUBLE  = 9;
+    private static final byte TAG_STRING  = 10;
+    private static final byte TAG_BYTES   = 11;
+    private static final byte TAG_LIST    = 12;
+    private static final byte TAG_SET     = 13;
+    private static final byte TAG_MAP     = 14;
+    private static final byte TAG_ARRAY   = 15;
+    private static final byte TAG_ENUM    = 16;
+    private static final byte TAG_OBJECT  = 17;
+
+    //@formatter:on
+
+    private static final Map<String, Class<?>> CLASS_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * <集合类型，无参构造器>，没有可用的构造器时为空
+     */
+    private static final Map<Class<?>, Optional<Constructor<?>>> CONSTRUCTOR_CACHE = new ConcurrentHashMap<>();
+
+    private BinaryValueCodec() {
+    }
+
+    // ---------------------------------------- 带标签的值 ----------------------------------------
+
+    public static void writeNull(ByteBuf out) {
+        out.writeByte(TAG_NULL);
+    }
+
+    public static void writeValue(ByteBuf out, boolean value) {
+        out.writeByte(value ? TAG_TRUE : TAG_FALSE);
+    }
+
+    public static void writeValue(ByteBuf out, byte value) {
+        out.writeByte(TAG_BYTE);
+        out.writeByte(value);
+    }
+
+    public static void writeValue(ByteBuf out, short value) {
+        out.writeByte(TAG_SHORT);
+        out.writeShort(value);
+    }
+
+    public static void writeValue(ByteBuf out, char value) {
+        out.writeByte(TAG_CHAR);
+        out.writeChar(value);
+    }
+
+    public static void writeValue(ByteBuf out, int value) {
+        out.writeByte(TAG_INT);
+        writeInt(out, value);
+    }
+
+    public static void writeValue(ByteBuf out, long value) {
+        out.writeByte(TAG_LONG);
+        writeLong(out, value);
+    }
+
+    public static void writeValue(ByteBuf out, float value) {
+        out.writeByte(TAG_FLOAT);
+        out.writeFloat(value);
+    }
+
+    public static void writeValue(ByteBuf out, double value) {
+        out.writeByte(TAG_DOUBLE);
+        out.writeDouble(value);
+    }
+
+    /**
+     * 写入任意类型的值
+     */
+    public static void writeValue(ByteBuf out, Object value, TypeTable table) {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Integer) {
+            writeValue(out, ((Integer) value).intValue());
+        } else if (value instanceof Long) {
+            writeValue(out, ((Long) value).longValue());
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            writeValue(out, ((Boolean) value).booleanValue());
+        } else if (value instanceof Byte) {
+            writeValue(out, ((Byte) value).byteValue());
+        } else if (value instanceof Short) {
+            writeValue(out, ((Short) value).shortValue());
+        } else if (value instanceof Character) {
+            writeValue(out, ((Character) value).charValue());
+        } else if (value instanceof Float) {
+            writeValue(out, ((Float) value).floatValue());
+        } else if (value instanceof Double) {
+            writeValue(out, ((Double) value).doubleValue());
+        } else if (value instanceof byte[]) {
+            out.writeByte(TAG_BYTES);
+            writeVarInt(out, ((byte[]) value).length);
+            out.writeBytes((byte[]) value);
+        } else if (value instanceof List) {
+            out.writeByte(TAG_LIST);
+            writeContainerType(out, value.getClass(), ArrayList.class, table);
+            writeCollection(out, (Collection<?>) value, table);
+        } else if (value instanceof Set) {
+            out.writeByte(TAG_SET);
+            writeContainerType(out, value.getClass(), HashSet.class, table);
+            writeCollection(out, (Collection<?>) value, table);
+        } else if (value instanceof Map) {
+            out.writeByte(TAG_MAP);
+            writeContainerType(out, value.getClass(), HashMap.class, table);
+            writeVarInt(out, ((Map<?, ?>) value).size());
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                writeValue(out, entry.getKey(), table);
+                writeValue(out, entry.getValue(), table);
+            }
+        } else if (value.getClass().isArray()) {
+            out.writeByte(TAG_ARRAY);
+            writeType(out, value.getClass().getComponentType(), table);
+            int length = Array.getLength(value);
+            writeVarInt(out, length);
+            for (int i = 0; i < length; i++) {
+                writeValue(out, Array.get(value, i), table);
+            }
+        } else if (value instanceof Enum) {
+            out.writeByte(TAG_ENUM);
+            writeType(out, ((Enum<?>) value).getDeclaringClass(), table);
+            writeString(out, ((Enum<?>) value).name());
+        } else {
+            //其它对象由Json序列化
+            out.writeByte(TAG_OBJECT);
+            writeType(out, value.getClass(), table);
+            writeString(out, JsonObject.serialize(value));
+        }
+    }
+
+    /**
+     * 读取一个带标签的值
+     */
+    public static Object readValue(ByteBuf in, TypeTable table) {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_BYTE:
+                return in.readByte();
+            case TAG_SHORT:
+                return in.readShort();
+            case TAG_CHAR:
+                return in.readChar();
+            case TAG_INT:
+                return readInt(in);
+            case TAG_LONG:
+                return readLong(in);
+            case TAG_FLOAT:
+                return in.readFloat();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_STRING:
+                return readString(in);
+            case TAG_BYTES: {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.readBytes(bytes);
+                return bytes;
+            }
+            case TAG_LIST:
+                return readCollection(in, newContainer(readContainerType(in, table), List.class, ArrayList::new), table);
+            case TAG_SET:
+                return readCollection(in, newContainer(readContainerType(in, table), Set.class, HashSet::new), table);
+            case TAG_MAP: {
+                Map<Object, Object> map = newContainer(readContainerType(in, table), Map.class, HashMap::new);
+                int size = readVarInt(in);
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(in, table), readValue(in, table));
+                }
+                return map;
+            }
+            case TAG_ARRAY: {
+                Class<?> componentType = readType(in, table);
+                int length = readVarInt(in);
+                Object array = Array.newInstance(componentType, length);
+                for (int i = 0; i < length; i++) {
+                    Array.set(array, i, readValue(in, table));
+                }
+                return array;
+            }
+            case TAG_ENUM: {
+                Class<?> enumType = readType(in, table);
+                return readEnum(enumType, readString(in));
+            }
+            case TAG_OBJECT: {
+                Class<?> objectType = readType(in, table);
+                return JsonObject.deserialize(readString(in), objectType);
+            }
+            default:
+                throw new DecoderException("unknown value tag " + tag);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object readEnum(Class<?> enumClass, String name) {
+        return Enum.valueOf((Class<? extends Enum>) enumClass, name);
+    }
+
+    /**
+     * 集合的实际类型，是默认类型时只写入0，否则写入1和类型，解码时还原为相同的类型，方法参数可以声明为具体的集合类型
+     */
+    private static void writeContainerType(ByteBuf out, Class<?> clazz, Class<?> defaultClass, TypeTable table) {
+        if (clazz == defaultClass) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(1);
+            writeType(out, clazz, table);
+        }
+    }
+
+    /**
+     * @return 默认类型时返回null
+     */
+    private static Class<?> readContainerType(ByteBuf in, TypeTable table) {
+        return in.readByte() == 0 ? null : readType(in, table);
+    }
+
+    /**
+     * 以无参构造器创建指定类型的集合，没有可用的构造器(例如不可变集合)或者类型不符时创建默认类型
+     */
+    @SuppressWarnings("unchecked")
+    private static <C> C newContainer(Class<?> clazz, Class<?> containerClass, Supplier<? extends C> defaultSupplier) {
+        if (clazz == null || !containerClass.isAssignableFrom(clazz)) {
+            return defaultSupplier.get();
+        }
+        Constructor<?> constructor = CONSTRUCTOR_CACHE.computeIfAbsent(clazz, BinaryValueCodec::findConstructor).orElse(null);
+        if (constructor == null) {
+            return defaultSupplier.get();
+        }
+        try {
+            return (C) constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            return defaultSupplier.get();
+        }
+    }
+
+    private static Optional<Constructor<?>> findConstructor(Class<?> clazz) {
+        if (!Modifier.isPublic(clazz.getModifiers()) || Modifier.isAbstract(clazz.getModifiers())) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(clazz.getConstructor());
+        } catch (NoSuchMethodException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static void writeCollection(ByteBuf out, Collection<?> collection, TypeTable table) {
+        writeVarInt(out, collection.size());
+        for (Object element : collection) {
+            writeValue(out, element, table);
+        }
+    }
+
+    private static Collection<Object> readCollection(ByteBuf in, Collection<Object> collection, TypeTable table) {
+        int size = readVarInt(in);
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue(in, table));
+        }
+        return collection;
+    }
+
+    /**
+     * 类型表中存在的类型写入类型ID+1，否则写入0和完整类名
+     */
+    private static void writeType(ByteBuf out, Class<?> clazz, TypeTable table) {
+        int typeId = table.getTypeId(clazz);
+        writeVarInt(out, typeId + 1);
+        if (typeId < 0) {
+            writeString(out, clazz.getName());
+        }
+    }
+
+    private static Class<?> readType(ByteBuf in, TypeTable table) {
+        int typeId = readVarInt(in) - 1;
+        if (typeId >= 0) {
+            return table.getType(typeId);
+        }
+
+        String className = readString(in);
+        return CLASS_CACHE.computeIfAbsent(className, name -> {
+            try {
+                return ClassUtils.getClass(name);
+            } catch (ClassNotFoundException e) {
+                throw new DecoderException(e);
+            }
+        });
+    }
+
+    // ---------------------------------------- 无标签的值 ----------------------------------------
+
+    /**
+     * 字符串写入长度+1，长度为0表示null
+     * 先按最大可能长度预留长度字段，直接把字符串编码进缓冲区后再回填实际长度，避免生成临时的字节数组
+     */
+    public static void writeString(ByteBuf out, String value) {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+
+        int lengthWidth = varIntWidth(value.length() * 3 + 1);
+        int lengthIndex = out.writerIndex();
+        out.writeZero(lengthWidth);
+        int length = ByteBufUtil.writeUtf8(out, value);
+
+        //以固定宽度回填长度，不足的部分使用没有数据位的续位字节补齐
+        int lengthValue = length + 1;
+        for (int i = 0; i < lengthWidth - 1; i++) {
+            out.setByte(lengthIndex + i, (lengthValue & 0x7F) | 0x80);
+            lengthValue >>>= 7;
+        }
+        out.setByte(lengthIndex + lengthWidth - 1, lengthValue);
+    }
+
+    public static String readString(ByteBuf in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return value;
+    }
+
+    /**
+     * 无标签的int，使用ZigZag+变长编码
+     */
+    public static void writeInt(ByteBuf out, int value) {
+        writeVarInt(out, zigZag(value));
+    }
+
+    public static int readInt(ByteBuf in) {
+        return unZigZag(readVarInt(in));
+    }
+
+    /**
+     * 无标签的long，使用ZigZag+变长编码
+     */
+    public static void writeLong(ByteBuf out, long value) {
+        writeVarLong(out, zigZag(value));
+    }
+
+    public static long readLong(ByteBuf in) {
+        return unZigZag(readVarLong(in));
+    }
+
+    public static void writeVarInt(ByteBuf out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(ByteBuf in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new DecoderException("malformed var int");
+    }
+
+    public static void writeVarLong(ByteBuf out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readVarLong(ByteBuf in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new DecoderException("malformed var long");
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varIntWidth(int value) {
+        int width = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            width++;
+        }
+        return width;
+    }
+}
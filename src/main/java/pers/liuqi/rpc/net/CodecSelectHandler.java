@@ -0,0 +1,31 @@
+package pers.liuqi.rpc.net;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+/**
+ * <pre>
+ * 服务提供者一端使用，根据连接上收到的第一个数据包识别调用者使用的编码方式
+ * Json数据包以'{'开头，其余的都是二进制数据包
+ * 识别后将对应的编解码器加入管道，并将自己从管道中移除
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class CodecSelectHandler extends ChannelInboundHandlerAdapter {
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof ByteBuf) {
+            ByteBuf frame = (ByteBuf) msg;
+            boolean json = frame.isReadable() && frame.getByte(frame.readerIndex()) == '{';
+            CodecType codecType = json ? CodecType.JSON : CodecType.BINARY;
+            //类型表在登陆校验通过后设置
+            codecType.addCodec(ctx.pipeline(), ctx.name(), TypeTable.EMPTY);
+        }
+
+        ctx.pipeline().remove(this);
+        ctx.fireChannelRead(msg);
+    }
+}
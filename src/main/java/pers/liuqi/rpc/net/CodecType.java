@@ -0,0 +1,71 @@
+package pers.liuqi.rpc.net;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.string.StringDecoder;
+import io.netty.handler.codec.string.StringEncoder;
+import org.apache.commons.lang3.StringUtils;
+import pers.liuqi.rpc.config.Constant;
+
+/**
+ * <pre>
+ * 网络消息的编码方式
+ * 由服务提供者在service.xml中为每个服务单独配置，并通过注册中心发布给调用者
+ * 提供者一端根据连接上收到的第一个数据包自动识别编码方式
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public enum CodecType {
+
+    /**
+     * Json字符串，可读性好，便于调试
+     */
+    JSON {
+        @Override
+        ChannelHandler[] newHandlers(TypeTable typeTable) {
+            return new ChannelHandler[]{new StringDecoder(), new StringEncoder(), new MessageCodec()};
+        }
+    },
+
+    /**
+     * 紧凑的二进制格式
+     */
+    BINARY {
+        @Override
+        ChannelHandler[] newHandlers(TypeTable typeTable) {
+            return new ChannelHandler[]{new BinaryMessageCodec(typeTable)};
+        }
+    };
+
+    /**
+     * 根据配置的名称获取编码方式，未配置时使用Json
+     */
+    public static CodecType of(String name) {
+        for (CodecType codecType : values()) {
+            if (StringUtils.equalsIgnoreCase(codecType.name(), name)) {
+                return codecType;
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * 将编解码相关的Handler依次添加到指定Handler的后面
+     *
+     * @param pipeline  连接的管道
+     * @param baseName  编解码Handler添加在此Handler之后
+     * @param typeTable 二进制编码使用的类型表
+     */
+    public void addCodec(ChannelPipeline pipeline, String baseName, TypeTable typeTable) {
+        String prevName = baseName;
+        ChannelHandler[] handlers = newHandlers(typeTable);
+        for (int i = 0; i < handlers.length; i++) {
+            String name = Constant.HANDLER_CODEC + i;
+            pipeline.addAfter(prevName, name, handlers[i]);
+            prevName = name;
+        }
+    }
+
+    abstract ChannelHandler[] newHandlers(TypeTable typeTable);
+}
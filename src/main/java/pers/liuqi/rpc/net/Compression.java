@@ -0,0 +1,258 @@
+package pers.liuqi.rpc.net;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.DecoderException;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <pre>
+ * 网络数据包的压缩方式
+ * 由服务提供者在service.xml中为每个服务单独配置，并通过注册中心发布给调用者，登陆时校验双方是否一致
+ * 只有deflate支持预先训练的字典，字典同样由注册中心发布，登陆时按字典ID校验
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public enum Compression {
+
+    /**
+     * 不压缩
+     */
+    NONE {
+        @Override
+        Codec newCodec(byte[] dictionary) {
+            return null;
+        }
+    },
+
+    /**
+     * 压缩速度快，本地库不可用时使用纯Java实现
+     */
+    LZ4 {
+        @Override
+        Codec newCodec(byte[] dictionary) {
+            return new Lz4Codec();
+        }
+    },
+
+    /**
+     * JDK自带的实现，压缩率更高，支持字典
+     */
+    DEFLATE {
+        @Override
+        Codec newCodec(byte[] dictionary) {
+            return new DeflateCodec(dictionary);
+        }
+
+        @Override
+        public boolean supportsDictionary() {
+            return true;
+        }
+    };
+
+    /**
+     * 根据配置的名称获取压缩方式，未配置时不压缩
+     */
+    public static Compression of(String name) {
+        for (Compression compression : values()) {
+            if (StringUtils.equalsIgnoreCase(compression.name(), name)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * 字典ID，由字典内容的校验和得到，没有字典时为0
+     */
+    public static int dictionaryId(byte[] dictionary) {
+        if (dictionary == null || dictionary.length == 0) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(dictionary);
+        return (int) crc.getValue();
+    }
+
+    public boolean supportsDictionary() {
+        return false;
+    }
+
+    /**
+     * 创建一条连接使用的压缩实现，不压缩时返回null
+     */
+    abstract Codec newCodec(byte[] dictionary);
+
+    /**
+     * 一条连接使用的压缩实现，只在连接所在的网络线程上使用
+     */
+    interface Codec {
+
+        /**
+         * 压缩src中可读的数据写入dst，不改变src的读取位置
+         */
+        void compress(ByteBuf src, ByteBuf dst);
+
+        /**
+         * 解压src中可读的数据写入dst
+         *
+         * @param length 解压后的长度
+         */
+        void decompress(ByteBuf src, ByteBuf dst, int length);
+
+        /**
+         * @return 解压的目标是否使用堆内缓冲区，只接受数组的实现可以直接解压到其中
+         */
+        default boolean decompressToHeap() {
+            return false;
+        }
+
+        /**
+         * 连接关闭时释放资源
+         */
+        default void close() {
+
+        }
+    }
+
+    private static final class Lz4Codec implements Codec {
+
+        /**
+         * 优先使用本地库，不可用时使用纯Java实现
+         */
+        private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+
+        @Override
+        public void compress(ByteBuf src, ByteBuf dst) {
+            LZ4Compressor compressor = FACTORY.fastCompressor();
+            int length = src.readableBytes();
+            int maxLength = compressor.maxCompressedLength(length);
+            dst.ensureWritable(maxLength);
+            ByteBuffer in = src.nioBuffer(src.readerIndex(), length);
+            ByteBuffer out = dst.nioBuffer(dst.writerIndex(), maxLength);
+            int written = compressor.compress(in, in.position(), length, out, out.position(), maxLength);
+            dst.writerIndex(dst.writerIndex() + written);
+        }
+
+        @Override
+        public void decompress(ByteBuf src, ByteBuf dst, int length) {
+            dst.ensureWritable(length);
+            ByteBuffer in = src.nioBuffer(src.readerIndex(), src.readableBytes());
+            ByteBuffer out = dst.nioBuffer(dst.writerIndex(), length);
+            int read = FACTORY.fastDecompressor().decompress(in, in.position(), out, out.position(), length);
+            src.skipBytes(read);
+            dst.writerIndex(dst.writerIndex() + length);
+        }
+    }
+
+    private static final class DeflateCodec implements Codec {
+
+        private static final int OUTPUT_CHUNK = 8192;
+
+        private final byte[] dictionary;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final Inflater inflater = new Inflater();
+
+        /**
+         * Deflater、Inflater只接受数组，缓冲区不是数组支撑时借用这两个数组中转，按需要扩大后复用，不为每个数据包分配
+         */
+        private byte[] inputBuffer = new byte[OUTPUT_CHUNK];
+        private final byte[] outputBuffer = new byte[OUTPUT_CHUNK];
+
+        private DeflateCodec(byte[] dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public void compress(ByteBuf src, ByteBuf dst) {
+            deflater.reset();
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            int length = src.readableBytes();
+            if (src.hasArray()) {
+                deflater.setInput(src.array(), src.arrayOffset() + src.readerIndex(), length);
+            } else {
+                deflater.setInput(copyInput(src, length), 0, length);
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (dst.hasArray()) {
+                    dst.ensureWritable(OUTPUT_CHUNK);
+                    int written = deflater.deflate(dst.array(), dst.arrayOffset() + dst.writerIndex(), dst.writableBytes());
+                    dst.writerIndex(dst.writerIndex() + written);
+                } else {
+                    int written = deflater.deflate(outputBuffer);
+                    dst.writeBytes(outputBuffer, 0, written);
+                }
+            }
+        }
+
+        @Override
+        public void decompress(ByteBuf src, ByteBuf dst, int length) {
+            inflater.reset();
+            int inputLength = src.readableBytes();
+            if (src.hasArray()) {
+                inflater.setInput(src.array(), src.arrayOffset() + src.readerIndex(), inputLength);
+            } else {
+                inflater.setInput(copyInput(src, inputLength), 0, inputLength);
+            }
+            src.skipBytes(inputLength);
+
+            //数组支撑的目标缓冲区直接解压到其中，否则分块中转
+            dst.ensureWritable(length);
+            int offset = 0;
+            try {
+                while (offset < length) {
+                    int read;
+                    if (dst.hasArray()) {
+                        read = inflater.inflate(dst.array(), dst.arrayOffset() + dst.writerIndex(), length - offset);
+                        dst.writerIndex(dst.writerIndex() + read);
+                    } else {
+                        read = inflater.inflate(outputBuffer, 0, Math.min(outputBuffer.length, length - offset));
+                        dst.writeBytes(outputBuffer, 0, read);
+                    }
+                    if (read > 0) {
+                        offset += read;
+                    } else if (inflater.needsDictionary() && dictionary != null) {
+                        inflater.setDictionary(dictionary);
+                    } else {
+                        throw new DecoderException("corrupted deflate frame, expect " + length + " bytes, got " + offset);
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new DecoderException(e);
+            }
+        }
+
+        @Override
+        public boolean decompressToHeap() {
+            return true;
+        }
+
+        /**
+         * 复制到复用的输入数组，数据包比数组大时扩大，连接上的数据包长度受maxFrameLength限制
+         */
+        private byte[] copyInput(ByteBuf src, int length) {
+            if (inputBuffer.length < length) {
+                inputBuffer = new byte[Math.max(length, inputBuffer.length << 1)];
+            }
+            src.getBytes(src.readerIndex(), inputBuffer, 0, length);
+            return inputBuffer;
+        }
+
+        @Override
+        public void close() {
+            deflater.end();
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package pers.liuqi.rpc.net;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ * 所有连接的压缩统计，用于评估压缩节省的流量与消耗的CPU
+ * 压缩后不比原数据小的数据包按原样发送，同样计入压缩耗时
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public final class CompressionStats {
+
+    private static final LongAdder COMPRESSED_FRAMES = new LongAdder();
+    private static final LongAdder UNCOMPRESSED_FRAMES = new LongAdder();
+    private static final LongAdder RAW_BYTES = new LongAdder();
+    private static final LongAdder COMPRESSED_BYTES = new LongAdder();
+    private static final LongAdder COMPRESS_NANOS = new LongAdder();
+
+    private static final LongAdder DECOMPRESSED_FRAMES = new LongAdder();
+    private static final LongAdder DECOMPRESS_NANOS = new LongAdder();
+
+    private CompressionStats() {
+    }
+
+    static void onCompressed(int rawLength, int compressedLength, long nanos) {
+        COMPRESSED_FRAMES.increment();
+        RAW_BYTES.add(rawLength);
+        COMPRESSED_BYTES.add(compressedLength);
+        COMPRESS_NANOS.add(nanos);
+    }
+
+    static void onUncompressed(long nanos) {
+        UNCOMPRESSED_FRAMES.increment();
+        COMPRESS_NANOS.add(nanos);
+    }
+
+    static void onDecompressed(long nanos) {
+        DECOMPRESSED_FRAMES.increment();
+        DECOMPRESS_NANOS.add(nanos);
+    }
+
+    /**
+     * 压缩后发送的数据包数
+     */
+    public static long getCompressedFrames() {
+        return COMPRESSED_FRAMES.sum();
+    }
+
+    /**
+     * 开启了压缩，但低于阈值或压缩无效而按原样发送的数据包数
+     */
+    public static long getUncompressedFrames() {
+        return UNCOMPRESSED_FRAMES.sum();
+    }
+
+    /**
+     * 压缩节省的字节数
+     */
+    public static long getBytesSaved() {
+        return RAW_BYTES.sum() - COMPRESSED_BYTES.sum();
+    }
+
+    /**
+     * 压缩后发送的数据包，压缩后与压缩前的字节数之比
+     */
+    public static double getCompressionRatio() {
+        long rawBytes = RAW_BYTES.sum();
+        return rawBytes == 0 ? 1 : (double) COMPRESSED_BYTES.sum() / rawBytes;
+    }
+
+    /**
+     * 压缩消耗的时间，纳秒
+     */
+    public static long getCompressNanos() {
+        return COMPRESS_NANOS.sum();
+    }
+
+    public static long getDecompressedFrames() {
+        return DECOMPRESSED_FRAMES.sum();
+    }
+
+    /**
+     * 解压消耗的时间，纳秒
+     */
+    public static long getDecompressNanos() {
+        return DECOMPRESS_NANOS.sum();
+    }
+
+    public static String summary() {
+        return "CompressionStats{" +
+                "compressedFrames=" + getCompressedFrames() +
+                ", uncompressedFrames=" + getUncompressedFrames() +
+                ", bytesSaved=" + getBytesSaved() +
+                ", ratio=" + String.format("%.3f", getCompressionRatio()) +
+                ", compressMillis=" + getCompressNanos() / 1000000 +
+                ", decompressedFrames=" + getDecompressedFrames() +
+                ", decompressMillis=" + getDecompressNanos() / 1000000 +
+                '}';
+    }
+}
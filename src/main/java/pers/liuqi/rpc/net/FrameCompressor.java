@@ -0,0 +1,145 @@
+package pers.liuqi.rpc.net;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.List;
+
+/**
+ * <pre>
+ * 数据包的压缩、解压，位于拆包、封包与编解码器之间
+ * 开启后每个数据包前增加一个字节的标记：0为原始数据，1为压缩数据，压缩数据之前还有原始长度
+ * 只压缩超过阈值的数据包，压缩后不比原数据小时按原样发送
+ * 调用者一端在登陆消息发出后开启，提供者一端在收到登陆消息后加入管道，登陆消息本身不压缩
+ * 每条连接单独持有压缩实现，只在连接所在的网络线程上使用
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class FrameCompressor extends MessageToMessageCodec<ByteBuf, ByteBuf> {
+
+    //@formatter:off
+
+    private static final byte FLAG_RAW          = 0;
+    private static final byte FLAG_COMPRESSED   = 1;
+
+    //@formatter:on
+
+    private final Compression compression;
+    private final int dictionaryId;
+    private final Compression.Codec codec;
+    private final int threshold;
+    private final int maxFrameLength;
+
+    private volatile boolean active;
+
+    /**
+     * @param dictionary     预先训练的字典，压缩方式不支持字典时忽略
+     * @param threshold      压缩的阈值，超过此长度的数据包才压缩
+     * @param maxFrameLength 解压后数据包长度的上限
+     * @param active         是否立即开启
+     */
+    public FrameCompressor(Compression compression, byte[] dictionary, int threshold, int maxFrameLength, boolean active) {
+        byte[] usedDictionary = compression.supportsDictionary() ? dictionary : null;
+        this.compression = compression;
+        this.dictionaryId = Compression.dictionaryId(usedDictionary);
+        this.codec = compression.newCodec(usedDictionary);
+        this.threshold = threshold;
+        this.maxFrameLength = maxFrameLength;
+        this.active = active;
+    }
+
+    /**
+     * 调用者一端登陆消息发出后开启连接上的压缩，需要在连接所在的网络线程上调用
+     */
+    public static void activate(Channel channel) {
+        FrameCompressor compressor = channel.pipeline().get(FrameCompressor.class);
+        if (compressor != null) {
+            compressor.active = true;
+        }
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
+        if (!active) {
+            out.add(msg.retain());
+            return;
+        }
+
+        int length = msg.readableBytes();
+        long start = System.nanoTime();
+        if (length >= threshold) {
+            ByteBuf buf = ctx.alloc().ioBuffer(length / 2 + 8);
+            try {
+                buf.writeByte(FLAG_COMPRESSED);
+                BinaryValueCodec.writeVarInt(buf, length);
+                int headerLength = buf.readableBytes();
+                codec.compress(msg, buf);
+                int compressedLength = buf.readableBytes() - headerLength;
+                if (compressedLength < length) {
+                    CompressionStats.onCompressed(length, compressedLength, System.nanoTime() - start);
+                    out.add(buf);
+                    buf = null;
+                    return;
+                }
+            } finally {
+                if (buf != null) {
+                    buf.release();
+                }
+            }
+        }
+
+        CompressionStats.onUncompressed(System.nanoTime() - start);
+        CompositeByteBuf frame = ctx.alloc().compositeBuffer(2);
+        frame.addComponent(true, ctx.alloc().ioBuffer(1).writeByte(FLAG_RAW));
+        frame.addComponent(true, msg.retain());
+        out.add(frame);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
+        if (!active) {
+            out.add(msg.retain());
+            return;
+        }
+
+        if (msg.readByte() == FLAG_RAW) {
+            out.add(msg.retain());
+            return;
+        }
+
+        int length = BinaryValueCodec.readVarInt(msg);
+        if (length < 0 || length > maxFrameLength) {
+            throw new TooLongFrameException("decompressed frame length " + length + " exceeds " + maxFrameLength);
+        }
+
+        long start = System.nanoTime();
+        ByteBuf buf = codec.decompressToHeap() ? ctx.alloc().heapBuffer(length) : ctx.alloc().buffer(length);
+        try {
+            codec.decompress(msg, buf, length);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+        CompressionStats.onDecompressed(System.nanoTime() - start);
+        out.add(buf);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        codec.close();
+        super.handlerRemoved(ctx);
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public int getDictionaryId() {
+        return dictionaryId;
+    }
+}
@@ -1,5 +1,7 @@
 package pers.liuqi.rpc.net;
 
+import java.util.List;
+
 /**
  * 调用者首次连接上提供者后发送的消息
  * 用于指明该连接所用的服务
@@ -10,6 +12,27 @@ public class LoginMessage {
 
     private String serviceName;
 
+    /**
+     * 调用者使用的方法签名列表，提供者用来校验双方的方法ID是否一致
+     */
+    private List<String> methodSignatures;
+
+    /**
+     * 调用者使用的类型表，二进制编码时提供者用来校验双方的类型ID是否一致
+     */
+    private List<String> typeNames;
+
+    /**
+     * 是否为多路复用的连接，连接上每个服务分别发送一次登陆消息
+     */
+    private boolean multiplex;
+
+    /**
+     * 调用者使用的压缩方式、字典ID，提供者用来校验是否与服务的配置一致
+     */
+    private String compression;
+    private int dictionaryId;
+
     public LoginMessage() {
     }
 
@@ -17,6 +40,12 @@ public class LoginMessage {
         this.serviceName = serviceName;
     }
 
+    public LoginMessage(String serviceName, List<String> methodSignatures, List<String> typeNames) {
+        this.serviceName = serviceName;
+        this.methodSignatures = methodSignatures;
+        this.typeNames = typeNames;
+    }
+
     public String getServiceName() {
         return serviceName;
     }
@@ -24,4 +53,44 @@ public class LoginMessage {
     public void setServiceName(String serviceName) {
         this.serviceName = serviceName;
     }
+
+    public List<String> getMethodSignatures() {
+        return methodSignatures;
+    }
+
+    public void setMethodSignatures(List<String> methodSignatures) {
+        this.methodSignatures = methodSignatures;
+    }
+
+    public List<String> getTypeNames() {
+        return typeNames;
+    }
+
+    public void setTypeNames(List<String> typeNames) {
+        this.typeNames = typeNames;
+    }
+
+    public boolean isMultiplex() {
+        return multiplex;
+    }
+
+    public void setMultiplex(boolean multiplex) {
+        this.multiplex = multiplex;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public int getDictionaryId() {
+        return dictionaryId;
+    }
+
+    public void setDictionaryId(int dictionaryId) {
+        this.dictionaryId = dictionaryId;
+    }
 }
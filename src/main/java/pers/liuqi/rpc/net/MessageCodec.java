@@ -1,11 +1,19 @@
 package pers.liuqi.rpc.net;
 
 import com.egls.server.utils.databind.json.JsonObject;
+import pers.liuqi.rpc.invoke.Invoke;
+import pers.liuqi.rpc.invoke.InvokeBatch;
+import pers.liuqi.rpc.invoke.InvokeResult;
+import pers.liuqi.rpc.invoke.InvokeResultBatch;
+import pers.liuqi.rpc.invoke.Recyclable;
 import pers.liuqi.rpc.util.RuntimeLogger;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.MessageToMessageCodec;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Objects;
 
 /**
@@ -20,26 +28,130 @@ import java.util.Objects;
  */
 public class MessageCodec extends MessageToMessageCodec<String, Object> {
 
+    /**
+     * 编码只在连接所在的网络线程上执行，复用同一个包装对象
+     */
+    private final MessageDataWrapper encodeWrapper = new MessageDataWrapper();
 
     /**
-     * 将出站调用结果序列换成字符串
+     * 将出站调用结果序列换成字符串，之后归还调用、调用结果对象
+     * 无法序列化时与二进制编解码器一致：调用以失败结果结束调用者的回调，调用结果改为发送携带异常摘要的失败结果
      */
     @Override
     protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) {
         try {
-            out.add(JsonObject.serialize(new MessageDataWrapper(msg)));
+            out.add(serialize(Objects.requireNonNull(msg)));
+            BinaryMessageCodec.onEncoded(msg);
+        } catch (Exception e) {
+            String replaced = encodeFailure(ctx, msg, e);
+            if (replaced == null) {
+                //没有输出时由编码器抛出EncoderException，交给连接的exceptionCaught记录
+                throw new EncoderException("encode -> " + msg, e);
+            }
+            out.add(replaced);
+        } finally {
+            if (msg instanceof Recyclable) {
+                ((Recyclable) msg).recycle();
+            }
+        }
+    }
+
+    private String serialize(Object msg) {
+        encodeWrapper.messageData = msg;
+        try {
+            return JsonObject.serialize(encodeWrapper);
+        } finally {
+            encodeWrapper.messageData = null;
+        }
+    }
+
+    /**
+     * @return 无法序列化时的异常，可以序列化时返回null
+     */
+    private Exception trySerialize(Object msg) {
+        try {
+            serialize(msg);
+            return null;
         } catch (Exception e) {
-            RuntimeLogger.info("encode -> " + msg, e);
+            return e;
         }
     }
 
     /**
-     * 将入站的调用消息反序列化成POJO对象
+     * 消息无法序列化，批量消息中逐个检查，只处理无法序列化的调用、调用结果
+     *
+     * @return 替换后可以发送的消息，没有时返回null
+     */
+    private String encodeFailure(ChannelHandlerContext ctx, Object msg, Exception cause) {
+        if (msg instanceof Invoke) {
+            BinaryMessageCodec.failInvoke(ctx, (Invoke) msg, cause);
+            return null;
+        }
+
+        if (msg instanceof InvokeResult) {
+            InvokeResult<Object> failure = failureOf((InvokeResult<?>) msg, cause);
+            try {
+                return serialize(failure);
+            } finally {
+                failure.recycle();
+            }
+        }
+
+        if (msg instanceof InvokeBatch) {
+            //去掉无法序列化的调用，其余的照常发送
+            Iterator<Invoke> iterator = ((InvokeBatch) msg).getInvokes().iterator();
+            while (iterator.hasNext()) {
+                Invoke invoke = iterator.next();
+                Exception error = trySerialize(invoke);
+                if (error != null) {
+                    iterator.remove();
+                    RuntimeLogger.error("encode invoke error", invoke.getId(), error);
+                    BinaryMessageCodec.failInvoke(ctx, invoke, error);
+                    invoke.recycle();
+                }
+            }
+            return ((InvokeBatch) msg).getInvokes().isEmpty() ? null : serialize(msg);
+        }
+
+        if (msg instanceof InvokeResultBatch) {
+            //无法序列化的调用结果替换为失败结果
+            ListIterator<InvokeResult<Object>> iterator = ((InvokeResultBatch) msg).getResults().listIterator();
+            while (iterator.hasNext()) {
+                InvokeResult<Object> result = iterator.next();
+                Exception error = trySerialize(result);
+                if (error != null) {
+                    iterator.set(failureOf(result, error));
+                    result.recycle();
+                }
+            }
+            return serialize(msg);
+        }
+        return null;
+    }
+
+    /**
+     * 调用结果无法序列化时，改为发送的携带异常摘要的失败结果
+     */
+    private static InvokeResult<Object> failureOf(InvokeResult<?> result, Exception cause) {
+        RuntimeLogger.error("encode invoke result error", result.getInvokeId(), cause);
+        InvokeResult<Object> failure = InvokeResult.failure(result.getInvokeId(), cause);
+        failure.setServiceId(result.getServiceId());
+        return failure;
+    }
+
+    /**
+     * 将入站的调用消息反序列化成POJO对象，批量消息拆分为单个的调用、调用结果
      */
     @Override
     protected void decode(ChannelHandlerContext ctx, String msg, List<Object> out) {
         MessageDataWrapper dataWrapper = JsonObject.deserialize(msg, MessageDataWrapper.class);
-        out.add(dataWrapper.messageData);
+        if (dataWrapper.messageData instanceof InvokeBatch) {
+            out.addAll(((InvokeBatch) dataWrapper.messageData).getInvokes());
+        } else if (dataWrapper.messageData instanceof InvokeResultBatch) {
+            out.addAll(((InvokeResultBatch) dataWrapper.messageData).getResults());
+        } else {
+            out.add(dataWrapper.messageData);
+        }
     }
 
     private static class MessageDataWrapper {
@@ -48,10 +160,5 @@ public class MessageCodec extends MessageToMessageCodec<String, Object> {
 
         private MessageDataWrapper() {
         }
-
-        MessageDataWrapper(Object messageData) {
-            this.messageData = messageData;
-            Objects.requireNonNull(messageData);
-        }
     }
 }
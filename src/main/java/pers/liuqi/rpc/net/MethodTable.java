@@ -0,0 +1,138 @@
+package pers.liuqi.rpc.net;
+
+import pers.liuqi.rpc.config.Constant;
+import pers.liuqi.rpc.service.InvokeTimeout;
+import pers.liuqi.rpc.service.OneWay;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <pre>
+ * 服务接口的方法表
+ * 将接口的所有方法按签名排序后依次分配方法ID，调用时只传递方法ID，提供者按ID直接路由
+ * 方法ID由签名决定，同名的重载方法也有各自的ID
+ * 调用者与提供者使用同一个接口生成的方法表是一致的，登陆时由调用者发送签名列表，提供者校验
+ * 同时记录每个方法异步调用的超时时间，以及是否为单向调用、流式调用
+ * 单向调用的签名带有标记，调用者与提供者对单向调用的认定不一致时登陆校验失败
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public final class MethodTable {
+
+    private static final Map<Class<?>, MethodTable> TABLE_CACHE = new ConcurrentHashMap<>();
+
+    private static final String ONE_WAY_SUFFIX = "@OneWay";
+
+    private final Method[] methods;
+    private final List<String> signatures;
+    private final long[] timeouts;
+    private final boolean[] oneWays;
+    private final boolean[] streams;
+
+    private MethodTable(Method[] methods) {
+        this.methods = methods;
+        this.timeouts = new long[methods.length];
+        this.oneWays = new boolean[methods.length];
+        this.streams = new boolean[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            InvokeTimeout invokeTimeout = methods[i].getAnnotation(InvokeTimeout.class);
+            timeouts[i] = invokeTimeout != null ? invokeTimeout.value() : Constant.CALL_BACK_EXPIRE;
+            oneWays[i] = methods[i].isAnnotationPresent(OneWay.class) && methods[i].getReturnType() == void.class;
+            streams[i] = methods[i].getReturnType() == Iterator.class;
+        }
+
+        List<String> signatureList = new ArrayList<>(methods.length);
+        for (int i = 0; i < methods.length; i++) {
+            signatureList.add(oneWays[i] ? signature(methods[i]) + ONE_WAY_SUFFIX : signature(methods[i]));
+        }
+        this.signatures = Collections.unmodifiableList(signatureList);
+    }
+
+    /**
+     * 获取服务接口对应的方法表
+     */
+    public static MethodTable of(Class<?> interfaceClass) {
+        return TABLE_CACHE.computeIfAbsent(interfaceClass, MethodTable::build);
+    }
+
+    private static MethodTable build(Class<?> interfaceClass) {
+        //按签名排序，保证调用者和提供者生成的方法ID一致
+        TreeMap<String, Method> methodMap = new TreeMap<>();
+        for (Method method : interfaceClass.getMethods()) {
+            methodMap.put(signature(method), method);
+        }
+        return new MethodTable(methodMap.values().toArray(new Method[0]));
+    }
+
+    /**
+     * 方法签名，例如: getFriendList(java.lang.String,int)java.util.Set
+     */
+    public static String signature(Method method) {
+        StringBuilder builder = new StringBuilder(method.getName()).append('(');
+        Class<?>[] paramTypes = method.getParameterTypes();
+        for (int i = 0; i < paramTypes.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(paramTypes[i].getName());
+        }
+        return builder.append(')').append(method.getReturnType().getName()).toString();
+    }
+
+    /**
+     * @return 按方法ID排列的所有方法
+     */
+    public Method[] getMethods() {
+        return methods.clone();
+    }
+
+    public int size() {
+        return methods.length;
+    }
+
+    public Method getMethod(int methodId) {
+        return methods[methodId];
+    }
+
+    /**
+     * @return 方法名称，方法ID无效时返回ID本身，用于日志、统计
+     */
+    public String getMethodName(int methodId) {
+        return methodId >= 0 && methodId < methods.length ? methods[methodId].getName() : String.valueOf(methodId);
+    }
+
+    /**
+     * @return 异步调用的超时时间，毫秒
+     */
+    public long getTimeout(int methodId) {
+        return methodId >= 0 && methodId < timeouts.length ? timeouts[methodId] : Constant.CALL_BACK_EXPIRE;
+    }
+
+    /**
+     * @return 是否为单向调用，不登记回调，也不发送调用结果
+     */
+    public boolean isOneWay(int methodId) {
+        return methodId >= 0 && methodId < oneWays.length && oneWays[methodId];
+    }
+
+    /**
+     * @return 是否为流式调用，返回Iterator的方法，元素分段发送
+     */
+    public boolean isStream(int methodId) {
+        return methodId >= 0 && methodId < streams.length && streams[methodId];
+    }
+
+    public List<String> getSignatures() {
+        return signatures;
+    }
+
+    /**
+     * 校验对端发来的签名列表是否与本地一致
+     */
+    public boolean matches(List<String> remoteSignatures) {
+        return remoteSignatures != null && signatures.equals(remoteSignatures);
+    }
+}
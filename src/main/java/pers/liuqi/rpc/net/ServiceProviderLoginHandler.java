@@ -2,13 +2,17 @@ package pers.liuqi.rpc.net;
 
 import pers.liuqi.rpc.AbstractServiceProvider;
 import pers.liuqi.rpc.RpcContext;
+import pers.liuqi.rpc.ServiceDispatcher;
 import pers.liuqi.rpc.config.Constant;
+import pers.liuqi.rpc.util.RuntimeLogger;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.util.AttributeKey;
 
 /**
  * 用于服务提供者接收到网络连接收，将其指定给具体的服务Handler处理
+ * 多路复用的连接上每个服务分别登陆，登陆成功的服务登记到连接的调用分发器上，单个服务登陆失败不断开连接
+ * 登陆消息要求压缩时，在后续数据包到达之前加入压缩Handler，调用者发出登陆消息后即开始压缩
  *
  * @author LiuQi - [Created on 2018-08-20]
  */
@@ -18,7 +22,12 @@ public class ServiceProviderLoginHandler extends SimpleChannelInboundHandler<Obj
     protected void channelRead0(ChannelHandlerContext ctx, Object msg) throws Exception {
         AttributeKey<Object> key = AttributeKey.valueOf(Constant.KEY_SERVICE_NAME);
 
-        if (ctx.channel().hasAttr(key)) {
+        if (msg instanceof LoginMessage && !addCompressor(ctx, (LoginMessage) msg)) {
+            //调用者之后的数据包都已压缩，无法再处理；多路复用的连接只有在没有任何服务可以解压时才断开
+            ctx.channel().close();
+        } else if (msg instanceof LoginMessage && ((LoginMessage) msg).isMultiplex() && !ctx.channel().hasAttr(key)) {
+            loginMultiplex(ctx, (LoginMessage) msg);
+        } else if (ctx.channel().hasAttr(key) || ServiceDispatcher.isMultiplexed(ctx.channel())) {
             //已登陆的连接，直接进行后续处理
             ctx.fireChannelRead(msg);
         } else if (!tryLogin(ctx, msg)) {
@@ -33,11 +42,17 @@ public class ServiceProviderLoginHandler extends SimpleChannelInboundHandler<Obj
         }
 
         String serviceName = ((LoginMessage) message).getServiceName();
-        AbstractServiceProvider provider = RpcContext.getProvider(serviceName);
+        AbstractServiceProvider provider = verify(ctx, (LoginMessage) message);
         if (provider == null) {
             return false;
         }
 
+        //二进制编码时，设置该服务的类型表
+        BinaryMessageCodec binaryCodec = ctx.channel().pipeline().get(BinaryMessageCodec.class);
+        if (binaryCodec != null) {
+            binaryCodec.setTypeTable(TypeTable.of(provider.getServiceInterface()));
+        }
+
         //根据客户端发过来的服务名，将对应的ServiceProvider注册到channel的管道中
         AttributeKey<Object> key = AttributeKey.valueOf(Constant.KEY_SERVICE_NAME);
         ctx.channel().attr(key).set(serviceName);
@@ -45,4 +60,104 @@ public class ServiceProviderLoginHandler extends SimpleChannelInboundHandler<Obj
         return true;
     }
 
+    /**
+     * 多路复用的连接上一个服务的登陆，失败时只记录日志，该服务的调用由分发器返回失败结果
+     */
+    private void loginMultiplex(ChannelHandlerContext ctx, LoginMessage message) {
+        //第一次登陆时连接即成为多路复用的连接，与登陆是否成功无关
+        ServiceDispatcher dispatcher = ServiceDispatcher.of(ctx.channel());
+        BinaryMessageCodec binaryCodec = ctx.channel().pipeline().get(BinaryMessageCodec.class);
+        if (binaryCodec != null) {
+            binaryCodec.setMultiplex(true);
+        }
+
+        String serviceName = message.getServiceName();
+        AbstractServiceProvider provider = verify(ctx, message);
+        if (provider == null) {
+            RuntimeLogger.error("multiplex login fail", serviceName, ctx.channel().remoteAddress());
+            return;
+        }
+
+        int serviceId = RpcContext.serviceId(serviceName);
+        if (!dispatcher.register(serviceId, serviceName)) {
+            RuntimeLogger.error("multiplex login service id conflict", serviceName, serviceId, ctx.channel().remoteAddress());
+            return;
+        }
+        if (binaryCodec != null) {
+            binaryCodec.registerTypeTable(serviceId, TypeTable.of(provider.getServiceInterface()));
+        }
+    }
+
+    /**
+     * 连接上第一个要求压缩的登陆消息，按该服务的配置加入压缩Handler
+     * 多路复用的连接由多个服务共用，登陆的服务不存在或者配置不一致时，使用压缩方式与字典相同的其它服务创建，该服务的登陆之后单独拒绝
+     *
+     * @return 没有可以解压的配置时返回false
+     */
+    private boolean addCompressor(ChannelHandlerContext ctx, LoginMessage message) {
+        if (Compression.of(message.getCompression()) == Compression.NONE || ctx.pipeline().get(FrameCompressor.class) != null) {
+            return true;
+        }
+
+        AbstractServiceProvider provider = RpcContext.getProvider(message.getServiceName());
+        if (provider == null || !matchCompression(provider, message)) {
+            RuntimeLogger.error("login compression mismatch", message.getServiceName(), message.getCompression(), ctx.channel().remoteAddress());
+            provider = message.isMultiplex() ? findCompressionProvider(message) : null;
+            if (provider == null) {
+                return false;
+            }
+        }
+        ctx.pipeline().addAfter(Constant.HANDLER_FRAME_ENCODER, Constant.HANDLER_COMPRESSOR, provider.newCompressor());
+        return true;
+    }
+
+    /**
+     * @return 压缩方式与字典都与登陆消息一致的本地服务，没有时返回null
+     */
+    private static AbstractServiceProvider findCompressionProvider(LoginMessage message) {
+        for (AbstractServiceProvider provider : RpcContext.getProviders()) {
+            if (matchCompression(provider, message)) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matchCompression(AbstractServiceProvider provider, LoginMessage message) {
+        return provider.getCompression() == Compression.of(message.getCompression()) && provider.getDictionaryId() == message.getDictionaryId();
+    }
+
+    /**
+     * 校验登陆消息
+     *
+     * @return 校验通过时返回对应的服务提供者，否则返回null
+     */
+    private AbstractServiceProvider verify(ChannelHandlerContext ctx, LoginMessage message) {
+        String serviceName = message.getServiceName();
+        AbstractServiceProvider provider = RpcContext.getProvider(serviceName);
+        if (provider == null) {
+            return null;
+        }
+
+        //调用只传递方法ID，需要双方使用相同的方法表
+        if (!provider.getMethodTable().matches(message.getMethodSignatures())) {
+            RuntimeLogger.error("login method table mismatch", serviceName, ctx.channel().remoteAddress());
+            return null;
+        }
+
+        //压缩方式需要与服务的配置一致
+        if (!matchCompression(provider, message)) {
+            RuntimeLogger.error("login compression mismatch", serviceName, message.getCompression(), ctx.channel().remoteAddress());
+            return null;
+        }
+
+        //二进制编码时，需要双方使用相同的类型表
+        if (ctx.channel().pipeline().get(BinaryMessageCodec.class) != null
+                && !TypeTable.of(provider.getServiceInterface()).matches(message.getTypeNames())) {
+            RuntimeLogger.error("login type table mismatch", serviceName, ctx.channel().remoteAddress());
+            return null;
+        }
+        return provider;
+    }
+
 }
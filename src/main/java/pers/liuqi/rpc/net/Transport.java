@@ -0,0 +1,91 @@
+package pers.liuqi.rpc.net;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.apache.commons.lang3.StringUtils;
+import pers.liuqi.rpc.util.RuntimeLogger;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <pre>
+ * 网络传输的实现方式，在service.xml中配置(auto/epoll/nio)，提供者与调用者使用同一种
+ *
+ * EPOLL    Linux上的原生epoll，减少JDK NIO的额外开销和垃圾
+ * NIO      JDK NIO，所有平台可用
+ *
+ * 不配置或者配置为auto时，epoll可用则使用epoll，否则使用NIO
+ * 配置为epoll但当前平台不可用时，记录日志后使用NIO
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public enum Transport {
+
+    EPOLL {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getChannelClass() {
+            return EpollSocketChannel.class;
+        }
+    },
+
+    NIO {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new NioEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getChannelClass() {
+            return NioSocketChannel.class;
+        }
+    };
+
+    /**
+     * 根据配置的名称选择传输方式
+     */
+    public static Transport of(String name) {
+        if (StringUtils.equalsIgnoreCase(NIO.name(), name)) {
+            return NIO;
+        }
+        if (Epoll.isAvailable()) {
+            return EPOLL;
+        }
+        if (StringUtils.equalsIgnoreCase(EPOLL.name(), name)) {
+            RuntimeLogger.error("epoll transport unavailable, use nio", Epoll.unavailabilityCause());
+        }
+        return NIO;
+    }
+
+    /**
+     * @param threads 线程数，为0时使用Netty的默认值(CPU核数的2倍)
+     */
+    public abstract EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory);
+
+    public abstract Class<? extends ServerChannel> getServerChannelClass();
+
+    public abstract Class<? extends SocketChannel> getChannelClass();
+}
@@ -0,0 +1,109 @@
+package pers.liuqi.rpc.net;
+
+import com.egls.server.utils.databind.json.JsonObject;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <pre>
+ * 二进制编码使用的类型表
+ * 根据服务接口的方法签名，收集所有参数、返回值中出现的对象类型，按类名排序后依次分配类型ID
+ * 调用者与提供者使用同一个接口生成的类型表是一致的，登陆时由调用者发送类型列表，提供者校验
+ * 编码时在类型表中的类型只写入类型ID，不在类型表中的类型写入完整类名
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public final class TypeTable {
+
+    /**
+     * 没有任何类型的类型表，所有对象类型都会写入完整类名
+     */
+    public static final TypeTable EMPTY = new TypeTable(Collections.emptyList());
+
+    private static final Map<Class<?>, TypeTable> TABLE_CACHE = new ConcurrentHashMap<>();
+
+    private final Class<?>[] types;
+    private final List<String> typeNames;
+    private final Map<Class<?>, Integer> typeIdMap;
+
+    private TypeTable(List<Class<?>> typeList) {
+        this.types = typeList.toArray(new Class<?>[0]);
+        this.typeIdMap = new HashMap<>(typeList.size() * 2);
+
+        List<String> nameList = new ArrayList<>(typeList.size());
+        for (int i = 0; i < types.length; i++) {
+            typeIdMap.put(types[i], i);
+            nameList.add(types[i].getName());
+        }
+        this.typeNames = Collections.unmodifiableList(nameList);
+    }
+
+    /**
+     * 获取服务接口对应的类型表
+     */
+    public static TypeTable of(Class<?> interfaceClass) {
+        return TABLE_CACHE.computeIfAbsent(interfaceClass, TypeTable::build);
+    }
+
+    private static TypeTable build(Class<?> interfaceClass) {
+        //按类名排序，保证调用者和提供者生成的类型ID一致
+        TreeMap<String, Class<?>> typeMap = new TreeMap<>();
+        for (Method method : interfaceClass.getMethods()) {
+            collectType(method.getGenericReturnType(), typeMap);
+            for (Type paramType : method.getGenericParameterTypes()) {
+                collectType(paramType, typeMap);
+            }
+        }
+        return new TypeTable(new ArrayList<>(typeMap.values()));
+    }
+
+    private static void collectType(Type type, Map<String, Class<?>> typeMap) {
+        if (type instanceof Class) {
+            Class<?> clazz = (Class<?>) type;
+            if (clazz.isArray()) {
+                collectType(clazz.getComponentType(), typeMap);
+            } else if (clazz.isEnum() || JsonObject.class.isAssignableFrom(clazz)) {
+                typeMap.put(clazz.getName(), clazz);
+            }
+        } else if (type instanceof ParameterizedType) {
+            //泛型参数，例如List<FriendInfo>
+            collectType(((ParameterizedType) type).getRawType(), typeMap);
+            for (Type argumentType : ((ParameterizedType) type).getActualTypeArguments()) {
+                collectType(argumentType, typeMap);
+            }
+        } else if (type instanceof WildcardType) {
+            for (Type upperBound : ((WildcardType) type).getUpperBounds()) {
+                collectType(upperBound, typeMap);
+            }
+        }
+    }
+
+    /**
+     * @return 类型ID，不在类型表中返回-1
+     */
+    public int getTypeId(Class<?> clazz) {
+        Integer typeId = typeIdMap.get(clazz);
+        return typeId == null ? -1 : typeId;
+    }
+
+    public Class<?> getType(int typeId) {
+        return types[typeId];
+    }
+
+    public List<String> getTypeNames() {
+        return typeNames;
+    }
+
+    /**
+     * 校验对端发来的类型列表是否与本地一致
+     */
+    public boolean matches(List<String> remoteTypeNames) {
+        return remoteTypeNames != null && typeNames.equals(remoteTypeNames);
+    }
+}
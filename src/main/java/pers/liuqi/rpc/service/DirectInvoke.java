@@ -0,0 +1,24 @@
+package pers.liuqi.rpc.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <pre>
+ * 标记线程安全的服务或服务方法，本地调用时由调用线程直接执行服务实现，不再经过调用队列
+ * 可以标记在服务接口、服务实现类上，对所有方法生效；也可以只标记接口中的某个方法
+ * 直接执行时方法的返回值直接返回给调用者，异常也直接抛给调用者，仍然可以使用RpcUtil.async注册回调
+ * 只影响本地调用，远程调用仍然按服务的执行策略执行
+ *
+ * &#64;DirectInvoke
+ * int getOnlineCount();
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DirectInvoke {
+}
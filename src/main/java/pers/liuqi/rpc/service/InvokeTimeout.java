@@ -0,0 +1,28 @@
+package pers.liuqi.rpc.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <pre>
+ * 标记在服务接口的方法上，指定该方法异步调用的超时时间
+ * 超时后异步回调、CompletableFuture会收到InvokeTimeoutException，之后到达的调用结果被丢弃
+ * 未标记的方法使用默认的超时时间
+ *
+ * &#64;InvokeTimeout(1000)
+ * CompletableFuture&lt;Integer&gt; getLevel(long playerId);
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface InvokeTimeout {
+
+    /**
+     * 超时时间，毫秒
+     */
+    long value();
+}
@@ -0,0 +1,24 @@
+package pers.liuqi.rpc.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <pre>
+ * 标记在服务接口中返回void的方法上，调用只发送不等待结果
+ * 调用者不登记回调、不占用在途窗口，提供者执行后也不发送调用结果，执行异常只在提供者一端记录日志
+ * 不能对单向调用使用RpcUtil.async，返回值不是void的方法上的标记被忽略
+ * 连接不可写时单向调用直接被拒绝，不会在发送缓冲区中堆积
+ *
+ * &#64;OneWay
+ * void pushStat(String key, long value);
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OneWay {
+}
@@ -0,0 +1,22 @@
+package pers.liuqi.rpc.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <pre>
+ * 标记服务方法中作为路由键的参数，例如玩家ID
+ * 服务使用分区执行策略时，路由键相同的调用总是在同一个线程上按顺序执行
+ * 没有标记路由键的方法，调用会被随机分配到某个线程
+ *
+ * void addFriend(@RouteKey long playerId, long friendId);
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RouteKey {
+}
@@ -1,5 +1,7 @@
 package pers.liuqi.rpc.service;
 
+import pers.liuqi.rpc.config.Constant;
+
 import java.io.Serializable;
 
 /**
@@ -13,6 +15,15 @@ public class ServiceInfo implements Serializable {
     private int port;
     private String serviceInterfaceName;
     private boolean available;
+    private String codec;
+    private int connections;
+    private int weight;
+    private String compression;
+
+    /**
+     * 压缩使用的字典，Base64编码
+     */
+    private String compressionDictionary;
 
     public String getId() {
         return id;
@@ -62,6 +73,55 @@ public class ServiceInfo implements Serializable {
         this.available = available;
     }
 
+    public String getCodec() {
+        return codec;
+    }
+
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * 调用者与此提供者之间建立的连接数
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * 负载均衡的权重，未发布时使用默认权重
+     */
+    public int getWeight() {
+        return weight > 0 ? weight : Constant.DEFAULT_WEIGHT;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * 网络数据包的压缩方式，未发布时不压缩
+     */
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public String getCompressionDictionary() {
+        return compressionDictionary;
+    }
+
+    public void setCompressionDictionary(String compressionDictionary) {
+        this.compressionDictionary = compressionDictionary;
+    }
+
     @Override
     public String toString() {
         return "ServiceInfo{" +
@@ -71,6 +131,10 @@ public class ServiceInfo implements Serializable {
                 ", port=" + port +
                 ", serviceInterfaceName='" + serviceInterfaceName + '\'' +
                 ", available=" + available +
+                ", codec='" + codec + '\'' +
+                ", connections=" + connections +
+                ", weight=" + weight +
+                ", compression='" + compression + '\'' +
                 "}\n";
     }
 }
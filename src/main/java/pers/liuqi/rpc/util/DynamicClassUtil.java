@@ -7,8 +7,13 @@ import pers.liuqi.rpc.util.RuntimeLogger;
 import pers.liuqi.rpc.config.Constant;
 import pers.liuqi.rpc.exception.ServiceImplementNotFoundException;
 import pers.liuqi.rpc.invoke.Invoke;
+import pers.liuqi.rpc.net.MethodTable;
+import pers.liuqi.rpc.net.TypeTable;
+import pers.liuqi.rpc.service.DirectInvoke;
+import pers.liuqi.rpc.service.RouteKey;
 import pers.liuqi.rpc.service.Service;
 import pers.liuqi.rpc.service.ServiceInfo;
+import io.netty.buffer.ByteBuf;
 import javassist.*;
 import org.apache.commons.lang3.StringUtils;
 import org.reflections.Reflections;
@@ -16,10 +21,12 @@ import org.reflections.scanners.SubTypesScanner;
 import org.reflections.util.ClasspathHelper;
 import org.reflections.util.ConfigurationBuilder;
 
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author LiuQi - [Created on 2018-08-07]
@@ -30,9 +37,12 @@ public class DynamicClassUtil {
     private static final String PREFIX_PROVIDER      = Constant.DYNAMIC_CLASS_PACKAGE + ".Provider$$";
     private static final String PREFIX_LOCAL_PROXY   = Constant.DYNAMIC_CLASS_PACKAGE + ".LocalProxy$$";
     private static final String PREFIX_REMOTE_PROXY  = Constant.DYNAMIC_CLASS_PACKAGE + ".RemoteProxy$$";
+    private static final String PREFIX_SERIALIZER    = Constant.DYNAMIC_CLASS_PACKAGE + ".Serializer$$";
     private static final String VOID_TYPE            = "void";
+    private static final String STRING_TYPE          = "java.lang.String";
 
     private static final Map<String, List<String>> PRIMARY_TYPE_MAP = new HashMap<>();
+    private static final Map<String, List<String>> DIRECT_CODEC_MAP = new HashMap<>();
 
     private static volatile Reflections reflections = null;
 
@@ -46,6 +56,17 @@ public class DynamicClassUtil {
         PRIMARY_TYPE_MAP.put("byte",    Arrays.asList("Byte",      "byteValue"    , "0"));
         PRIMARY_TYPE_MAP.put("char",    Arrays.asList("Character", "charValue"    , "0"));
         PRIMARY_TYPE_MAP.put("boolean", Arrays.asList("Boolean",   "booleanValue" , "false"));
+
+        //可以直接编解码的类型，编码语句(缓冲区, 变量)，解码表达式(缓冲区)
+        DIRECT_CODEC_MAP.put("int",       Arrays.asList("BinaryValueCodec.writeInt(%s, %s);",     "BinaryValueCodec.readInt(%s)"));
+        DIRECT_CODEC_MAP.put("long",      Arrays.asList("BinaryValueCodec.writeLong(%s, %s);",    "BinaryValueCodec.readLong(%s)"));
+        DIRECT_CODEC_MAP.put("short",     Arrays.asList("%s.writeShort(%s);",                     "%s.readShort()"));
+        DIRECT_CODEC_MAP.put("double",    Arrays.asList("%s.writeDouble(%s);",                    "%s.readDouble()"));
+        DIRECT_CODEC_MAP.put("float",     Arrays.asList("%s.writeFloat(%s);",                     "%s.readFloat()"));
+        DIRECT_CODEC_MAP.put("byte",      Arrays.asList("%s.writeByte(%s);",                      "%s.readByte()"));
+        DIRECT_CODEC_MAP.put("char",      Arrays.asList("%s.writeChar(%s);",                      "%s.readChar()"));
+        DIRECT_CODEC_MAP.put("boolean",   Arrays.asList("%s.writeBoolean(%s);",                   "%s.readBoolean()"));
+        DIRECT_CODEC_MAP.put(STRING_TYPE, Arrays.asList("BinaryValueCodec.writeString(%s, %s);",  "BinaryValueCodec.readString(%s)"));
     }
     //@formatter:on
 
@@ -65,6 +86,8 @@ public class DynamicClassUtil {
         classPool.importPackage(RpcContext.class.getPackage().getName());
         classPool.importPackage(Invoke.class.getPackage().getName());
         classPool.importPackage(Service.class.getPackage().getName());
+        classPool.importPackage(TypeTable.class.getPackage().getName());
+        classPool.importPackage(ByteBuf.class.getPackage().getName());
         return classPool;
     }
 
@@ -115,38 +138,38 @@ public class DynamicClassUtil {
 
             //构造函数
             CtConstructor ctConstructor = new CtConstructor(new CtClass[]{classPool.get(service.getClass().getName())}, ctClass);
-            ctConstructor.setBody("{super($1.getTickInterval()); this.service = $1; }");
+            ctConstructor.setBody(String.format("{super($1.getTickInterval(), %s.class); this.service = $1; }", interfaceClass.getName()));
             ctClass.addConstructor(ctConstructor);
 
             //方法#getService()
             ctClass.addMethod(CtMethod.make("public Service getService() {return this.service;}", ctClass));
 
             //方法#invoke()
+            Method[] methods = MethodTable.of(interfaceClass).getMethods();
             StringBuilder methodBody = new StringBuilder();
             methodBody.append("public Object invoke(Invoke invoke) {");
             methodBody.append("Object[] params = invoke.getParams();");
 
-            //通过判断方法名称，将调用路由到实际的方法执行
-            for (int i = 0; i < interfaceClass.getMethods().length; i++) {
-                Method method = interfaceClass.getMethods()[i];
-                if (i != 0) {
-                    methodBody.append("else ");
-                }
-
-                //方法名称判断
-                methodBody.append(String.format("if ( \"%s\".equals(invoke.getMethodName()) ) {", method.getName()));
+            //方法ID是连续的，编译成tableswitch，将调用直接路由到实际的方法执行
+            methodBody.append("switch (invoke.getMethodId()) {");
+            for (int i = 0; i < methods.length; i++) {
+                Method method = methods[i];
+                methodBody.append("case ").append(i).append(": ");
                 //对应的service方法的调用
                 String methodInvokeString = serviceMethodInvoke(method);
                 if (!StringUtils.equals(method.getReturnType().getName(), VOID_TYPE)) {
-                    methodBody.append("return ").append(box(method.getReturnType(), methodInvokeString)).append(";}");
+                    methodBody.append("return ").append(box(method.getReturnType(), methodInvokeString)).append(";");
                 } else {
-                    methodBody.append(methodInvokeString).append(";}");
+                    methodBody.append(methodInvokeString).append("; return null;");
                 }
             }
 
-            methodBody.append("return null;}");
+            methodBody.append("default: return null;}}");
             ctClass.addMethod(CtMethod.make(methodBody.toString(), ctClass));
 
+            //方法#invoke(), 参数已编码
+            ctClass.addMethod(CtMethod.make(encodedInvokeMethod(methods), ctClass));
+
             debugPrintClass(providerClassName, ctClass);
             dynamicClass = ctClass.toClass();
         }
@@ -171,6 +194,67 @@ public class DynamicClassUtil {
         return methodBody.toString();
     }
 
+    /**
+     * <pre>
+     * 服务提供者执行已编码参数的调用
+     * 按方法签名从参数数据中依次解码出各个参数到局部变量，调用服务方法后直接将返回值编码
+     *
+     * case 0: {
+     *     int var0_0 = BinaryValueCodec.readInt(params);
+     *     java.lang.String var0_1 = BinaryValueCodec.readString(params);
+     *     BinaryValueCodec.writeValue(result, service.add(var0_0, var0_1));
+     *     return null;
+     * }
+     * 返回CompletableFuture的方法直接将其返回，完成后再发送结果
+     * 返回Iterator的流式方法同样直接将其返回，由执行通道分段编码发送
+     * 生成的是Java源码，模板生成的提供者也使用同一份方法体
+     * </pre>
+     *
+     * @param methods 按方法ID排列的接口方法
+     */
+    public static String encodedInvokeMethod(Method[] methods) {
+        StringBuilder methodBody = new StringBuilder();
+        methodBody.append("public Object invoke(Invoke invoke, ByteBuf params, ByteBuf result) {");
+        methodBody.append("TypeTable typeTable = getTypeTable();");
+        methodBody.append("switch (invoke.getMethodId()) {");
+
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            methodBody.append("case ").append(i).append(": {");
+
+            //解码参数
+            StringBuilder invokeParams = new StringBuilder();
+            for (int j = 0; j < method.getParameterTypes().length; j++) {
+                Class<?> paramType = method.getParameterTypes()[j];
+                String varName = "var" + i + "_" + j;
+                methodBody.append(paramType.getName()).append(" ").append(varName).append(" = ").append(decodeParam(paramType, "params")).append(";");
+                if (j > 0) {
+                    invokeParams.append(", ");
+                }
+                invokeParams.append(varName);
+            }
+
+            //调用服务方法，编码返回值
+            String methodInvokeString = String.format("service.%s(%s)", method.getName(), invokeParams);
+            Class<?> returnType = method.getReturnType();
+            if (isAsync(method) || isStream(method)) {
+                methodBody.append("return ").append(methodInvokeString).append(";}");
+                continue;
+            } else if (StringUtils.equals(returnType.getName(), VOID_TYPE)) {
+                methodBody.append(methodInvokeString).append(";");
+                methodBody.append("BinaryValueCodec.writeNull(result);");
+            } else if (PRIMARY_TYPE_MAP.containsKey(returnType.getName())) {
+                methodBody.append(String.format("BinaryValueCodec.writeValue(result, %s);", methodInvokeString));
+            } else {
+                methodBody.append(String.format("BinaryValueCodec.writeValue(result, (Object) %s, typeTable);", methodInvokeString));
+            }
+            methodBody.append("return null;}");
+        }
+
+        methodBody.append("default: BinaryValueCodec.writeNull(result); return null;}}");
+        return methodBody.toString();
+    }
+
     public static Object buildLocalProxy(Class<?> interfaceClass, AbstractServiceProvider invoker, ServiceInfo info) throws IllegalAccessException,
             InstantiationException, NotFoundException, CannotCompileException, NoSuchMethodException, InvocationTargetException {
 
@@ -189,28 +273,46 @@ public class DynamicClassUtil {
             //声明成员变量
             ctClass.addField(CtField.make("private AbstractServiceProvider invoker;", ctClass));
             ctClass.addField(CtField.make("private ServiceInfo info;", ctClass));
+            ctClass.addField(CtField.make(String.format("private %s service;", interfaceClass.getName()), ctClass));
 
             //构造函数
             CtConstructor ctConstructor = new CtConstructor(new CtClass[]{classPool.get(AbstractServiceProvider.class.getName()), classPool.get(ServiceInfo.class.getName())}, ctClass);
-            ctConstructor.setBody(String.format("{ this.invoker = (%s) $1; this.info = (%s) $2; }", AbstractServiceProvider.class.getName(), ServiceInfo.class.getName()));
+            ctConstructor.setBody(String.format("{ this.invoker = (%s) $1; this.info = (%s) $2; this.service = (%s) $1.getService(); }",
+                    AbstractServiceProvider.class.getName(), ServiceInfo.class.getName(), interfaceClass.getName()));
             ctClass.addConstructor(ctConstructor);
 
 
             //接口实现
-            for (Method method : interfaceClass.getMethods()) {
+            Class<?> serviceClass = invoker.getService().getClass();
+            MethodTable methodTable = MethodTable.of(interfaceClass);
+            Method[] methods = methodTable.getMethods();
+            for (int i = 0; i < methods.length; i++) {
+                Method method = methods[i];
                 StringBuilder methodBody = new StringBuilder();
 
                 //方法签名
                 fillMethodSign(methodBody, method);
-                //封装invoke
-                methodBody.append("Invoke invoke = RpcContext.buildInvoke");
-                fillMethodParams(methodBody, "this.info.getName()", method);
+
+                //线程安全的方法，由调用线程直接执行
+                if (isDirectInvoke(interfaceClass, serviceClass, method)) {
+                    directInvoke(methodBody, i, method);
+                    ctClass.addMethod(CtMethod.make(methodBody.toString(), ctClass));
+                    continue;
+                }
+
+                //封装invoke，单向调用不登记回调
+                methodBody.append(methodTable.isOneWay(i) ? "Invoke invoke = RpcContext.buildOneWayInvoke" : "Invoke invoke = RpcContext.buildInvoke");
+                fillMethodParams(methodBody, "this.info.getName()", i, method);
+                //返回CompletableFuture的方法，在调用之前登记
+                if (isAsync(method)) {
+                    methodBody.append("java.util.concurrent.CompletableFuture future = RpcContext.registerCompletion(this.info.getName(), invoke);");
+                }
 
                 //调用本地invoker
                 methodBody.append("invoker.localInvoke(invoke);");
 
                 //返回值
-                methodBody.append(returnDefaultValue(method.getReturnType()));
+                methodBody.append(isAsync(method) ? "return future;" : returnDefaultValue(method.getReturnType()));
                 methodBody.append("}");
                 ctClass.addMethod(CtMethod.make(methodBody.toString(), ctClass));
             }
@@ -223,10 +325,54 @@ public class DynamicClassUtil {
         return constructor.newInstance(invoker, info);
     }
 
+    /**
+     * 服务接口、服务实现类或者接口方法标记了DirectInvoke
+     */
+    private static boolean isDirectInvoke(Class<?> interfaceClass, Class<?> serviceClass, Method method) {
+        return interfaceClass.isAnnotationPresent(DirectInvoke.class)
+                || serviceClass.isAnnotationPresent(DirectInvoke.class)
+                || method.isAnnotationPresent(DirectInvoke.class);
+    }
+
+    /**
+     * <pre>
+     * 本地代理直接调用服务实现，并记录返回值供RpcUtil.async使用
+     *
+     * int var = this.service.getOnlineCount(var0);
+     * RpcContext.directInvoked(this.info.getName(), 3, Integer.valueOf(var));
+     * return var;
+     * </pre>
+     */
+    private static void directInvoke(StringBuilder methodBody, int methodId, Method method) {
+        StringBuilder invokeParams = new StringBuilder();
+        for (int j = 0; j < method.getParameterTypes().length; j++) {
+            if (j > 0) {
+                invokeParams.append(", ");
+            }
+            invokeParams.append("var").append(j);
+        }
+        String methodInvokeString = String.format("this.service.%s(%s)", method.getName(), invokeParams);
+
+        Class<?> returnType = method.getReturnType();
+        if (isAsync(method)) {
+            methodBody.append("return ").append(methodInvokeString).append(";");
+        } else if (StringUtils.equals(returnType.getName(), VOID_TYPE)) {
+            methodBody.append(methodInvokeString).append(";");
+            methodBody.append(String.format("RpcContext.directInvoked(this.info.getName(), %d, null);", methodId));
+        } else {
+            methodBody.append(returnType.getName()).append(" var = ").append(methodInvokeString).append(";");
+            methodBody.append(String.format("RpcContext.directInvoked(this.info.getName(), %d, %s);", methodId, box(returnType, "var")));
+            methodBody.append("return var;");
+        }
+        methodBody.append("}");
+    }
+
     public static AbstractServiceRemoteProxy buildRemoteProxy(ServiceInfo info) throws IllegalAccessException,
             InstantiationException, NotFoundException, CannotCompileException, NoSuchMethodException, InvocationTargetException, ClassNotFoundException {
 
         Class<?> interfaceClass = Class.forName(info.getServiceInterfaceName());
+        //参数的序列化类
+        String serializerClassName = buildSerializer(interfaceClass);
         //代理类
         String proxyClassName = PREFIX_REMOTE_PROXY + info.getName() + "$$" + info.getId();
         RuntimeLogger.info("build remote service proxy", proxyClassName);
@@ -243,21 +389,41 @@ public class DynamicClassUtil {
 
             //构造函数
             CtConstructor ctConstructor = new CtConstructor(new CtClass[]{classPool.get(ServiceInfo.class.getName())}, ctClass);
-            ctConstructor.setBody("{ super($1); }");
+            ctConstructor.setBody(String.format("{ super($1, %s.class); }", interfaceClass.getName()));
             ctClass.addConstructor(ctConstructor);
 
             //接口实现
-            for (Method method : interfaceClass.getMethods()) {
+            MethodTable methodTable = MethodTable.of(interfaceClass);
+            Method[] methods = methodTable.getMethods();
+            for (int i = 0; i < methods.length; i++) {
+                Method method = methods[i];
                 StringBuilder methodBody = new StringBuilder();
 
                 //方法签名
                 fillMethodSign(methodBody, method);
+                //返回CompletableFuture的方法，由父类登记后再发送
+                String invokeMethod = methodTable.isOneWay(i) ? "remoteInvokeOneWay" : "remoteInvoke";
+                if (isAsync(method)) {
+                    methodBody.append("java.util.concurrent.CompletableFuture future = null;");
+                    invokeMethod = "future = remoteInvokeAsync";
+                }
+                //二进制编码时，由序列化类直接编码参数
+                methodBody.append("if (isEncodeParams()) {");
+                methodBody.append("ByteBuf paramData = allocParams();");
+                methodBody.append(serializerClassName).append(".writeParams").append(i).append("(paramData, getTypeTable()");
+                for (int j = 0; j < method.getParameterTypes().length; j++) {
+                    methodBody.append(", var").append(j);
+                }
+                methodBody.append(");");
+                methodBody.append(invokeMethod).append("(").append(i).append(", ").append(routeHash(method)).append(", paramData);");
+                methodBody.append("} else {");
                 //调用父类方法
-                methodBody.append("remoteInvoke");
-                fillMethodParams(methodBody, null, method);
+                methodBody.append(invokeMethod);
+                fillMethodParams(methodBody, null, i, method);
+                methodBody.append("}");
 
                 //返回值
-                methodBody.append(returnDefaultValue(method.getReturnType()));
+                methodBody.append(isAsync(method) ? "return future;" : returnDefaultValue(method.getReturnType()));
                 methodBody.append("}");
 
                 //增加方法
@@ -272,6 +438,72 @@ public class DynamicClassUtil {
         return (AbstractServiceRemoteProxy) constructor.newInstance(info);
     }
 
+    /**
+     * <pre>
+     * 构建服务接口的参数序列化类
+     * 每个接口方法对应一个静态的编码方法，方法名后缀为方法ID，参数的类型、顺序在生成时就已确定
+     * 基础类型直接写入缓冲区，不需要装箱，也不需要类型标签
+     *
+     * public static void writeParams0(ByteBuf out, TypeTable typeTable, int var0, java.lang.String var1) {
+     *     BinaryValueCodec.writeInt(out, var0);
+     *     BinaryValueCodec.writeString(out, var1);
+     * }
+     * </pre>
+     *
+     * @return 序列化类的类名
+     */
+    private static String buildSerializer(Class<?> interfaceClass) throws CannotCompileException {
+        String serializerClassName = PREFIX_SERIALIZER + interfaceClass.getSimpleName();
+
+        ClassPool classPool = getClassPool();
+        if (getDynamicClass(serializerClassName, classPool) == null) {
+            RuntimeLogger.info("build service serializer", serializerClassName);
+            CtClass ctClass = classPool.makeClass(serializerClassName);
+
+            Method[] methods = MethodTable.of(interfaceClass).getMethods();
+            for (int i = 0; i < methods.length; i++) {
+                Method method = methods[i];
+                StringBuilder methodBody = new StringBuilder();
+                methodBody.append("public static void writeParams").append(i).append("(ByteBuf out, TypeTable typeTable");
+                for (int j = 0; j < method.getParameterTypes().length; j++) {
+                    methodBody.append(", ").append(method.getParameterTypes()[j].getName()).append(" var").append(j);
+                }
+                methodBody.append(") {");
+                for (int j = 0; j < method.getParameterTypes().length; j++) {
+                    methodBody.append(encodeParam(method.getParameterTypes()[j], "out", "var" + j));
+                }
+                methodBody.append("}");
+                ctClass.addMethod(CtMethod.make(methodBody.toString(), ctClass));
+            }
+
+            debugPrintClass(serializerClassName, ctClass);
+            ctClass.toClass();
+        }
+        return serializerClassName;
+    }
+
+    /**
+     * 编码一个参数的语句
+     */
+    private static String encodeParam(Class<?> typeClass, String bufName, String varName) {
+        List<String> list = DIRECT_CODEC_MAP.get(typeClass.getName());
+        if (list != null) {
+            return String.format(list.get(0), bufName, varName);
+        }
+        return String.format("BinaryValueCodec.writeValue(%s, %s, typeTable);", bufName, varName);
+    }
+
+    /**
+     * 解码一个参数的表达式
+     */
+    private static String decodeParam(Class<?> typeClass, String bufName) {
+        List<String> list = DIRECT_CODEC_MAP.get(typeClass.getName());
+        if (list != null) {
+            return String.format(list.get(1), bufName);
+        }
+        return String.format("(%s) BinaryValueCodec.readValue(%s, typeTable)", typeClass.getName(), bufName);
+    }
+
     /**
      * 方法签名
      *
@@ -293,20 +525,21 @@ public class DynamicClassUtil {
     }
 
     /**
-     * 组装方法名字，参数列表供方法调用使用
+     * 组装方法ID，参数列表供方法调用使用
      *
      * @param methodBody
+     * @param methodId
      * @param method
      */
-    private static void fillMethodParams(StringBuilder methodBody, String extra, Method method) {
-        //"getFriendList", var0
+    private static void fillMethodParams(StringBuilder methodBody, String extra, int methodId, Method method) {
+        //3, RpcContext.routeHash(Long.valueOf(var0)), new Object[]{var0}
 
         methodBody.append("(");
         if (extra != null) {
             methodBody.append(extra).append(",");
         }
-        //方法名称
-        methodBody.append("\"").append(method.getName()).append("\"");
+        //方法ID，路由键哈希
+        methodBody.append(methodId).append(", ").append(routeHash(method));
         methodBody.append(", ");
         if (method.getParameterTypes().length > 0) {
             methodBody.append("new Object[]{");
@@ -326,6 +559,35 @@ public class DynamicClassUtil {
         methodBody.append(");");
     }
 
+    /**
+     * 方法是否返回CompletableFuture，这类方法的调用结果通过返回的CompletableFuture直接获取
+     */
+    private static boolean isAsync(Method method) {
+        return method.getReturnType() == CompletableFuture.class;
+    }
+
+    /**
+     * 方法是否返回Iterator，这类方法的元素分段发送，调用者通过RpcUtil.stream逐个接收
+     */
+    private static boolean isStream(Method method) {
+        return method.getReturnType() == Iterator.class;
+    }
+
+    /**
+     * 路由键哈希的表达式，方法参数中有@RouteKey标记的参数时取其哈希值，否则随机
+     */
+    private static String routeHash(Method method) {
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof RouteKey) {
+                    return String.format("RpcContext.routeHash(%s)", box(method.getParameterTypes()[i], "var" + i));
+                }
+            }
+        }
+        return "RpcContext.randomRouteHash()";
+    }
+
     private static String returnDefaultValue(Class<?> typeClass) {
         //返回默认值
         List<String> list = PRIMARY_TYPE_MAP.get(typeClass.getName());
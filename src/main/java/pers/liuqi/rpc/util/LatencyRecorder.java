@@ -0,0 +1,35 @@
+package pers.liuqi.rpc.util;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * 耗时的直方图，以微秒记录，超过1小时的按1小时记录
+ * 基于HdrHistogram的Recorder，多个线程同时记录时不加锁、不等待
+ * 每次快照取出上一次快照以来的区间直方图，取出的直方图在下一次快照时复用
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+final class LatencyRecorder {
+
+    private static final long HIGHEST_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final org.HdrHistogram.Recorder recorder = new org.HdrHistogram.Recorder(HIGHEST_MICROS, 2);
+    private Histogram recycle;
+
+    void recordNanos(long nanos) {
+        recorder.recordValue(Math.max(0, Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_MICROS)));
+    }
+
+    /**
+     * 取出区间直方图并计算统计值
+     */
+    synchronized MetricsSnapshot.Latency snapshot() {
+        Histogram histogram = recorder.getIntervalHistogram(recycle);
+        recycle = histogram;
+        return new MetricsSnapshot.Latency(histogram);
+    }
+}
@@ -0,0 +1,106 @@
+package pers.liuqi.rpc.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ * 一个服务方法的统计
+ * 调用者一端：调用数、失败数、超时数、在途调用数，以及调用往返耗时
+ * 提供者一端：收到的调用数、失败数、排队和执行中的调用数，以及执行耗时、排队等待的耗时、结果写出的耗时
+ * 计数使用LongAdder，耗时使用{@link LatencyRecorder}，业务线程与网络线程同时记录时不产生竞争
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public final class MethodMetrics {
+
+    //@formatter:off
+
+    static final int OUTCOME_SUCCESS    = 0;
+    static final int OUTCOME_ERROR      = 1;
+    static final int OUTCOME_TIMEOUT    = 2;
+
+    //@formatter:on
+
+    private final String serviceName;
+    private final String methodName;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder inflight = new LongAdder();
+
+    /**
+     * 调用者一端为往返耗时，提供者一端为执行耗时
+     */
+    private final LatencyRecorder latency = new LatencyRecorder();
+
+    /**
+     * 提供者一端排队等待的耗时，调用者一端为null
+     */
+    private final LatencyRecorder queueWait;
+
+    /**
+     * 提供者一端从结果产生到在网络线程上编码完成的耗时，调用者一端为null
+     */
+    private final LatencyRecorder responseWrite;
+
+    MethodMetrics(String serviceName, String methodName, boolean provider) {
+        this.serviceName = serviceName;
+        this.methodName = methodName;
+        this.queueWait = provider ? new LatencyRecorder() : null;
+        this.responseWrite = provider ? new LatencyRecorder() : null;
+    }
+
+    void onCall() {
+        calls.increment();
+    }
+
+    /**
+     * 开始等待结果(调用者)或者开始排队(提供者)
+     */
+    void onStart() {
+        inflight.increment();
+    }
+
+    /**
+     * 调用结束，超时的调用不记录耗时
+     */
+    void onFinish(long nanos, int outcome) {
+        inflight.decrement();
+        if (outcome == OUTCOME_TIMEOUT) {
+            timeouts.increment();
+            return;
+        }
+        if (outcome == OUTCOME_ERROR) {
+            errors.increment();
+        }
+        latency.recordNanos(nanos);
+    }
+
+    void onQueueWait(long nanos) {
+        if (queueWait != null) {
+            queueWait.recordNanos(nanos);
+        }
+    }
+
+    void onResponseWrite(long nanos) {
+        if (responseWrite != null) {
+            responseWrite.recordNanos(nanos);
+        }
+    }
+
+    String getServiceName() {
+        return serviceName;
+    }
+
+    String getMethodName() {
+        return methodName;
+    }
+
+    MetricsSnapshot.Method snapshot() {
+        return new MetricsSnapshot.Method(serviceName, methodName, calls.sum(), errors.sum(), timeouts.sum(), inflight.sum(),
+                latency.snapshot(), queueWait == null ? null : queueWait.snapshot(),
+                responseWrite == null ? null : responseWrite.snapshot());
+    }
+}
@@ -0,0 +1,321 @@
+package pers.liuqi.rpc.util;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * 某一时刻的RPC统计快照
+ * 计数为启动以来的累计值，在途调用数为快照时的值，耗时为上一次快照以来的区间统计，单位微秒
+ * 慢调用为上一次快照以来提供者一端总耗时最长的若干个调用
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public final class MetricsSnapshot {
+
+    private final long timestamp;
+    private final long intervalMillis;
+    private final List<Method> callers;
+    private final List<Method> providers;
+    private final List<SlowCall> slowCalls;
+    private final long slowCallCount;
+
+    MetricsSnapshot(long timestamp, long intervalMillis, List<Method> callers, List<Method> providers, List<SlowCall> slowCalls, long slowCallCount) {
+        this.timestamp = timestamp;
+        this.intervalMillis = intervalMillis;
+        this.callers = callers;
+        this.providers = providers;
+        this.slowCalls = slowCalls;
+        this.slowCallCount = slowCallCount;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 距上一次快照的时间，即耗时统计的区间长度
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * 调用者一端各方法的统计，耗时为调用往返耗时
+     */
+    public List<Method> getCallers() {
+        return callers;
+    }
+
+    /**
+     * 提供者一端各方法的统计，耗时为执行耗时
+     */
+    public List<Method> getProviders() {
+        return providers;
+    }
+
+    /**
+     * 区间内总耗时最长的慢调用，按总耗时从长到短排列
+     */
+    public List<SlowCall> getSlowCalls() {
+        return slowCalls;
+    }
+
+    /**
+     * 区间内慢调用的总数，可能多于{@link #getSlowCalls()}列出的数量
+     */
+    public long getSlowCallCount() {
+        return slowCallCount;
+    }
+
+    /**
+     * 文本格式的统计，每个方法、每个慢调用一行
+     */
+    public String toText() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Rpc Record, interval ").append(intervalMillis).append("ms\n");
+        builder.append("[Caller]\n");
+        callers.forEach(method -> method.appendTo(builder, "rtt"));
+        builder.append("[Provider]\n");
+        providers.forEach(method -> method.appendTo(builder, "exec"));
+        if (slowCallCount > 0) {
+            builder.append("[Slow Call] total ").append(slowCallCount).append('\n');
+            slowCalls.forEach(call -> builder.append(call).append('\n'));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 一个服务方法的统计
+     */
+    public static final class Method {
+
+        private final String serviceName;
+        private final String methodName;
+        private final long calls;
+        private final long errors;
+        private final long timeouts;
+        private final long inflight;
+        private final Latency latency;
+        private final Latency queueWait;
+        private final Latency responseWrite;
+
+        Method(String serviceName, String methodName, long calls, long errors, long timeouts, long inflight,
+               Latency latency, Latency queueWait, Latency responseWrite) {
+            this.serviceName = serviceName;
+            this.methodName = methodName;
+            this.calls = calls;
+            this.errors = errors;
+            this.timeouts = timeouts;
+            this.inflight = inflight;
+            this.latency = latency;
+            this.queueWait = queueWait;
+            this.responseWrite = responseWrite;
+        }
+
+        private void appendTo(StringBuilder builder, String latencyName) {
+            builder.append(serviceName).append('#').append(methodName)
+                    .append(" calls=").append(calls)
+                    .append(" errors=").append(errors)
+                    .append(" timeouts=").append(timeouts)
+                    .append(" inflight=").append(inflight)
+                    .append(' ').append(latencyName).append(latency);
+            if (queueWait != null) {
+                builder.append(" wait").append(queueWait);
+            }
+            if (responseWrite != null) {
+                builder.append(" write").append(responseWrite);
+            }
+            builder.append('\n');
+        }
+
+        public String getServiceName() {
+            return serviceName;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * 调用者一端超时未收到结果的调用数，提供者一端为0
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getInflight() {
+            return inflight;
+        }
+
+        public Latency getLatency() {
+            return latency;
+        }
+
+        /**
+         * 提供者一端排队等待的耗时，调用者一端为null
+         */
+        public Latency getQueueWait() {
+            return queueWait;
+        }
+
+        /**
+         * 提供者一端从结果产生到在网络线程上编码完成的耗时，只统计远程调用，调用者一端为null
+         */
+        public Latency getResponseWrite() {
+            return responseWrite;
+        }
+    }
+
+    /**
+     * 提供者一端的一个慢调用，耗时单位微秒
+     */
+    public static final class SlowCall {
+
+        private final String serviceName;
+        private final String methodName;
+        private final long invokeId;
+        private final long timestamp;
+        private final long queueMicros;
+        private final long executeMicros;
+        private final long writeMicros;
+        private final long totalMicros;
+
+        SlowCall(String serviceName, String methodName, long invokeId, long timestamp, long queueNanos, long executeNanos, long writeNanos) {
+            this.serviceName = serviceName;
+            this.methodName = methodName;
+            this.invokeId = invokeId;
+            this.timestamp = timestamp;
+            this.queueMicros = queueNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(queueNanos);
+            this.executeMicros = TimeUnit.NANOSECONDS.toMicros(executeNanos);
+            this.writeMicros = writeNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(writeNanos);
+            this.totalMicros = Math.max(queueMicros, 0) + executeMicros + Math.max(writeMicros, 0);
+        }
+
+        public String getServiceName() {
+            return serviceName;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public long getInvokeId() {
+            return invokeId;
+        }
+
+        /**
+         * 结果写出完成的时间
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * 排队等待的耗时，没有记录收到时间时为-1
+         */
+        public long getQueueMicros() {
+            return queueMicros;
+        }
+
+        public long getExecuteMicros() {
+            return executeMicros;
+        }
+
+        /**
+         * 结果写出的耗时，本地调用为-1
+         */
+        public long getWriteMicros() {
+            return writeMicros;
+        }
+
+        public long getTotalMicros() {
+            return totalMicros;
+        }
+
+        @Override
+        public String toString() {
+            return serviceName + '#' + methodName +
+                    " invokeId=" + invokeId +
+                    " total=" + totalMicros +
+                    " wait=" + queueMicros +
+                    " exec=" + executeMicros +
+                    " write=" + writeMicros;
+        }
+    }
+
+    /**
+     * 一段区间内的耗时统计，单位微秒
+     */
+    public static final class Latency {
+
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        Latency(Histogram histogram) {
+            this.count = histogram.getTotalCount();
+            this.mean = histogram.getMean();
+            this.p50 = histogram.getValueAtPercentile(50);
+            this.p90 = histogram.getValueAtPercentile(90);
+            this.p99 = histogram.getValueAtPercentile(99);
+            this.p999 = histogram.getValueAtPercentile(99.9);
+            this.max = histogram.getMaxValue();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "(n=" + count +
+                    " mean=" + String.format("%.1f", mean) +
+                    " p50=" + p50 +
+                    " p90=" + p90 +
+                    " p99=" + p99 +
+                    " p999=" + p999 +
+                    " max=" + max +
+                    ")";
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package pers.liuqi.rpc.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
+
+/**
+ * <pre>
+ * 以调用ID为键的等待表，保存还未收到结果的调用
+ * 调用ID是顺序递增的，按ID对容量取模直接定位到环形数组中的槽位，存取都不装箱、不分配节点
+ * 槽位被仍在等待的旧调用占用时(等待中的调用数超过容量)，放入溢出表
+ * 槽位的占用过程：先将值从null置为占位标记，再写入键，最后写入值
+ * 调用ID不会重复使用，读取值的前后槽位中都是同一个键时，读到的值才属于这个键
+ * 删除时以CAS将键清零来认领，同一个值对象先后登记在不同的调用上(例如同一个在途窗口)也不会误删
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public final class PendingTable<V> {
+
+    private static final Object RESERVED = new Object();
+
+    private final int mask;
+    private final AtomicLongArray keys;
+    private final AtomicReferenceArray<Object> values;
+    private final Map<Long, V> overflowMap = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity 槽位数量，向上取整为2的幂
+     */
+    public PendingTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.mask = size - 1;
+        this.keys = new AtomicLongArray(size);
+        this.values = new AtomicReferenceArray<>(size);
+    }
+
+    public void put(long key, V value) {
+        int index = (int) key & mask;
+        if (values.compareAndSet(index, null, RESERVED)) {
+            keys.set(index, key);
+            values.set(index, value);
+        } else {
+            overflowMap.put(key, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Object value = slotValue((int) key & mask, key);
+        if (value != null) {
+            return (V) value;
+        }
+        return overflowMap.isEmpty() ? null : overflowMap.get(key);
+    }
+
+    public V remove(long key) {
+        return remove(key, null);
+    }
+
+    /**
+     * @param expect 只有当前的值是此对象时才删除，为null时不检查
+     * @return 被删除的值，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key, V expect) {
+        int index = (int) key & mask;
+        Object value = slotValue(index, key);
+        if (value != null && (expect == null || value == expect)) {
+            //键清零成功的一方负责释放槽位，释放之前槽位不会被其它键占用
+            if (keys.compareAndSet(index, key, 0)) {
+                values.set(index, null);
+                return (V) value;
+            }
+            return null;
+        }
+
+        if (overflowMap.isEmpty()) {
+            return null;
+        }
+        if (expect == null) {
+            return overflowMap.remove(key);
+        }
+        return overflowMap.remove(key, expect) ? expect : null;
+    }
+
+    /**
+     * @return 槽位中属于此键的值，槽位被其它键占用、或者正在写入时返回null
+     */
+    private Object slotValue(int index, long key) {
+        if (keys.get(index) != key) {
+            return null;
+        }
+        Object value = values.get(index);
+        if (value == null || value == RESERVED || keys.get(index) != key) {
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * 删除值为此对象的所有键，需要遍历所有槽位，只在连接关闭等不频繁的情况下使用
+     *
+     * @param action 逐个接收被删除的键，并发删除时只有删除成功的一方收到
+     */
+    public void removeAll(V value, LongConsumer action) {
+        for (int i = 0; i <= mask; i++) {
+            if (values.get(i) == value) {
+                long key = keys.get(i);
+                if (remove(key, value) != null) {
+                    action.accept(key);
+                }
+            }
+        }
+        for (Map.Entry<Long, V> entry : overflowMap.entrySet()) {
+            if (entry.getValue() == value && overflowMap.remove(entry.getKey(), value)) {
+                action.accept(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * 溢出表中的调用数，持续不为0时说明容量不足
+     */
+    public int getOverflowSize() {
+        return overflowMap.size();
+    }
+
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            keys.set(i, 0);
+            values.set(i, null);
+        }
+        overflowMap.clear();
+    }
+}
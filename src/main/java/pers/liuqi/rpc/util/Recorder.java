@@ -1,44 +1,189 @@
 package pers.liuqi.rpc.util;
 
+import pers.liuqi.rpc.config.Constant;
+import pers.liuqi.rpc.net.MethodTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
 /**
+ * <pre>
+ * RPC调用的统计
+ * 调用者一端按服务名、提供者一端按服务接口名分别统计每个方法，见{@link MethodMetrics}
+ * 调用开始的时间按调用ID记录在环形数组中，调用结束时取出计算往返耗时，不分配对象
+ * 槽位被仍在等待的旧调用占用时，新的调用只计数，不记录耗时和在途数
+ * 超时未收到结果的调用释放槽位，之后到达的结果不再记录
+ * 提供者一端总耗时超过阈值的慢调用记录在{@link SlowCallLog}中，每次快照列出并清空
+ * </pre>
+ *
  * @author LiuQi - [Created on 2018-08-15]
  */
 public class Recorder {
 
+    private static final long RESERVED = -1;
+
+    /**
+     * <服务名，统计>
+     */
+    private static final Map<String, ServiceMetrics> CALLER_MAP = new ConcurrentHashMap<>();
+    private static final Map<String, ServiceMetrics> PROVIDER_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 等待结果的调用：调用ID、开始时间、所属方法，以调用ID对容量取模定位
+     */
+    private static final int MASK = Constant.RECORDER_TRACK_CAPACITY - 1;
+    private static final AtomicLongArray TRACK_KEYS = new AtomicLongArray(MASK + 1);
+    private static final long[] TRACK_STARTS = new long[MASK + 1];
+    private static final MethodMetrics[] TRACK_METHODS = new MethodMetrics[MASK + 1];
+
+    private static final List<Consumer<MetricsSnapshot>> SNAPSHOT_LISTENERS = new CopyOnWriteArrayList<>();
+    private static long lastSnapshotTime = System.currentTimeMillis();
+
+    private static final SlowCallLog SLOW_CALL_LOG = new SlowCallLog(Constant.SLOW_CALL_LIMIT);
+    private static volatile long slowCallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Constant.SLOW_CALL_THRESHOLD);
+
+    /**
+     * 设置慢调用的阈值(毫秒)
+     */
+    public static void setSlowCallThreshold(long thresholdMillis) {
+        slowCallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    static boolean isSlowCall(long totalNanos) {
+        return totalNanos >= slowCallThresholdNanos;
+    }
+
+    static void offerSlowCall(MetricsSnapshot.SlowCall slowCall) {
+        SLOW_CALL_LOG.offer(slowCall);
+    }
+
+    /**
+     * 登记调用者一端的服务，方法表变化时重新统计
+     */
+    public static ServiceMetrics registerCaller(String serviceName, MethodTable methodTable) {
+        return register(CALLER_MAP, serviceName, methodTable, false);
+    }
+
+    /**
+     * 登记提供者一端的服务，方法表变化时重新统计
+     */
+    public static ServiceMetrics registerProvider(String serviceName, MethodTable methodTable) {
+        return register(PROVIDER_MAP, serviceName, methodTable, true);
+    }
+
+    private static ServiceMetrics register(Map<String, ServiceMetrics> map, String serviceName, MethodTable methodTable, boolean provider) {
+        return map.compute(serviceName, (name, metrics) ->
+                metrics != null && metrics.getMethodTable() == methodTable ? metrics : new ServiceMetrics(name, methodTable, provider));
+    }
+
+    /**
+     * 调用者发出一个需要结果的调用
+     */
+    public static void invokeStart(String serviceName, int methodId, long invokeId) {
+        MethodMetrics method = callerMethod(serviceName, methodId);
+        if (method == null) {
+            return;
+        }
+        method.onCall();
 
-//    private static Map<String, ElapsedTimeRecorder> serviceRecorderMap = new HashMap<>();
-//    private static Map<String, Map<String, ElapsedTimeRecorder>> methodRecorderMap = new HashMap<>();
-//    private static Map<Long, Triple<String, String, Long>> startTimeRecorderMap = new HashMap<>();
+        int index = (int) invokeId & MASK;
+        if (TRACK_KEYS.compareAndSet(index, 0, RESERVED)) {
+            method.onStart();
+            TRACK_STARTS[index] = System.nanoTime();
+            TRACK_METHODS[index] = method;
+            TRACK_KEYS.set(index, invokeId);
+        }
+    }
+
+    /**
+     * 调用者发出一个单向调用，只计数
+     */
+    public static void invokeOneWay(String serviceName, int methodId) {
+        MethodMetrics method = callerMethod(serviceName, methodId);
+        if (method != null) {
+            method.onCall();
+        }
+    }
 
-    public static void record(String serviceName, String method, long cost) {
-        //记录每个服务的耗时
-//        ElapsedTimeRecorder serviceRecorder = serviceRecorderMap.computeIfAbsent(serviceName, ElapsedTimeRecorder::new);
-//        serviceRecorder.addElapsedTime(cost);
-//
-//        //详细记录每个具体服务方法的耗时
-//        Map<String, ElapsedTimeRecorder> methodMap = methodRecorderMap.computeIfAbsent(serviceName, key -> CollectionUtil.newHashMap());
-//        ElapsedTimeRecorder methodRecorder = methodMap.computeIfAbsent(method, key -> new ElapsedTimeRecorder(serviceName + "#" + method));
-//        methodRecorder.addElapsedTime(cost);
+    /**
+     * 调用者收到调用结果，或者调用没有发送出去
+     */
+    public static void invokeFinish(long invokeId, boolean success) {
+        finish(invokeId, success ? MethodMetrics.OUTCOME_SUCCESS : MethodMetrics.OUTCOME_ERROR);
     }
 
-    public static void invokeStart(String serviceName, String method, long invokeId) {
-//        Triple<String, String, Long> record = Triple.of(serviceName, method, System.nanoTime());
-//        startTimeRecorderMap.put(invokeId, record);
+    /**
+     * 调用者超时未收到调用结果
+     */
+    public static void invokeTimeout(long invokeId) {
+        finish(invokeId, MethodMetrics.OUTCOME_TIMEOUT);
     }
 
-    public static void invokeFinish(long invokeId) {
-//        Triple<String, String, Long> record = startTimeRecorderMap.remove(invokeId);
-//        if (record != null) {
-//            long cost = System.nanoTime() - record.getRight();
-//            record(record.getLeft(), record.getMiddle(), cost);
-//        } else {
+    private static void finish(long invokeId, int outcome) {
+        int index = (int) invokeId & MASK;
+        if (TRACK_KEYS.get(index) != invokeId) {
+            return;
+        }
+        long start = TRACK_STARTS[index];
+        MethodMetrics method = TRACK_METHODS[index];
+        //读取之后再释放槽位，释放之前槽位不会被其它调用改写
+        if (TRACK_KEYS.compareAndSet(index, invokeId, 0)) {
+            method.onFinish(System.nanoTime() - start, outcome);
+        }
+    }
 
-//        }
+    private static MethodMetrics callerMethod(String serviceName, int methodId) {
+        ServiceMetrics service = CALLER_MAP.get(serviceName);
+        return service == null ? null : service.method(methodId);
     }
 
+    /**
+     * 获取统计快照，耗时为上一次快照以来的区间统计，同一时刻只有一个快照在进行
+     */
+    public static synchronized MetricsSnapshot snapshot() {
+        long now = System.currentTimeMillis();
+        List<MetricsSnapshot.Method> callers = new ArrayList<>();
+        CALLER_MAP.values().forEach(service -> callers.addAll(service.snapshot()));
+        List<MetricsSnapshot.Method> providers = new ArrayList<>();
+        PROVIDER_MAP.values().forEach(service -> providers.addAll(service.snapshot()));
+        SlowCallLog.Drained slowCalls = SLOW_CALL_LOG.drain();
+        MetricsSnapshot snapshot = new MetricsSnapshot(now, now - lastSnapshotTime, callers, providers, slowCalls.calls, slowCalls.count);
+        lastSnapshotTime = now;
+        return snapshot;
+    }
+
+    /**
+     * 添加定时快照的监听者，例如上报到监控系统
+     */
+    public static void addSnapshotListener(Consumer<MetricsSnapshot> listener) {
+        SNAPSHOT_LISTENERS.add(listener);
+    }
+
+    /**
+     * 定时快照：交给所有监听者，并输出到日志
+     */
+    public static void periodicSnapshot() {
+        MetricsSnapshot snapshot = snapshot();
+        for (Consumer<MetricsSnapshot> listener : SNAPSHOT_LISTENERS) {
+            try {
+                listener.accept(snapshot);
+            } catch (Exception e) {
+                RuntimeLogger.error("metrics snapshot listener error", e);
+            }
+        }
+        RuntimeLogger.info(snapshot.toText());
+    }
+
+    /**
+     * 立即输出一次统计到日志
+     */
     public static void printRecord() {
-//        RuntimeLogger.info(ElapsedTimeRecorder.toShowString("Service Record ", serviceRecorderMap.values()));
-//        RuntimeLogger.info(ElapsedTimeRecorder.toShowString("Method Record ", methodRecorderMap.values().stream().flatMap(map -> map.values().stream()).collect(Collectors.toList())));
+        RuntimeLogger.info(snapshot().toText());
     }
 }
-
@@ -0,0 +1,99 @@
+package pers.liuqi.rpc.util;
+
+import pers.liuqi.rpc.net.MethodTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个服务所有方法的统计，按方法ID直接定位
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public final class ServiceMetrics {
+
+    private final MethodTable methodTable;
+    private final MethodMetrics[] methods;
+
+    ServiceMetrics(String serviceName, MethodTable methodTable, boolean provider) {
+        this.methodTable = methodTable;
+        this.methods = new MethodMetrics[methodTable.size()];
+        for (int i = 0; i < methods.length; i++) {
+            methods[i] = new MethodMetrics(serviceName, methodTable.getMethodName(i), provider);
+        }
+    }
+
+    /**
+     * @return 方法ID无效时返回null
+     */
+    MethodMetrics method(int methodId) {
+        return methodId >= 0 && methodId < methods.length ? methods[methodId] : null;
+    }
+
+    /**
+     * 提供者收到一个调用，开始排队
+     */
+    public void onArrive(int methodId) {
+        MethodMetrics method = method(methodId);
+        if (method != null) {
+            method.onCall();
+            method.onStart();
+        }
+    }
+
+    /**
+     * 提供者执行完一个调用
+     *
+     * @param queueNanos   排队等待的耗时，没有记录收到时间时为负数，不记录
+     * @param executeNanos 执行耗时
+     */
+    public void onExecuted(int methodId, long queueNanos, long executeNanos, boolean success) {
+        MethodMetrics method = method(methodId);
+        if (method != null) {
+            if (queueNanos >= 0) {
+                method.onQueueWait(queueNanos);
+            }
+            method.onFinish(executeNanos, success ? MethodMetrics.OUTCOME_SUCCESS : MethodMetrics.OUTCOME_ERROR);
+        }
+    }
+
+    /**
+     * 提供者的一个调用结果已经写出(远程调用)或者交给了调用者(本地调用)，记录写出耗时，并检查是否为慢调用
+     *
+     * @param queueNanos   排队等待的耗时，没有记录收到时间时为负数
+     * @param executeNanos 执行耗时
+     * @param writeNanos   从结果产生到在网络线程上编码完成的耗时，本地调用为负数，不记录
+     */
+    public void onResponded(int methodId, long invokeId, long queueNanos, long executeNanos, long writeNanos) {
+        MethodMetrics method = method(methodId);
+        if (method == null) {
+            return;
+        }
+        if (writeNanos >= 0) {
+            method.onResponseWrite(writeNanos);
+        }
+        long totalNanos = Math.max(queueNanos, 0) + executeNanos + Math.max(writeNanos, 0);
+        if (Recorder.isSlowCall(totalNanos)) {
+            Recorder.offerSlowCall(new MetricsSnapshot.SlowCall(method.getServiceName(), method.getMethodName(), invokeId,
+                    System.currentTimeMillis(), queueNanos, executeNanos, writeNanos));
+        }
+    }
+
+    MethodTable getMethodTable() {
+        return methodTable;
+    }
+
+    /**
+     * 有过调用的方法的统计快照
+     */
+    List<MetricsSnapshot.Method> snapshot() {
+        List<MetricsSnapshot.Method> snapshots = new ArrayList<>();
+        for (MethodMetrics method : methods) {
+            MetricsSnapshot.Method snapshot = method.snapshot();
+            if (snapshot.getCalls() > 0) {
+                snapshots.add(snapshot);
+            }
+        }
+        return snapshots;
+    }
+}
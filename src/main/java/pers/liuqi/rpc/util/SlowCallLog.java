@@ -0,0 +1,62 @@
+package pers.liuqi.rpc.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * <pre>
+ * 一个统计区间内的慢调用，只保留总耗时最长的若干个
+ * 以总耗时最短的在堆顶的小顶堆保存，已满时新的慢调用只有比堆顶更慢才替换堆顶
+ * 只有超过阈值的调用才会进入，加锁的开销可以忽略
+ * </pre>
+ *
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+final class SlowCallLog {
+
+    private static final Comparator<MetricsSnapshot.SlowCall> BY_TOTAL = Comparator.comparingLong(MetricsSnapshot.SlowCall::getTotalMicros);
+
+    private final int limit;
+    private final PriorityQueue<MetricsSnapshot.SlowCall> calls;
+    private long count;
+
+    SlowCallLog(int limit) {
+        this.limit = limit;
+        this.calls = new PriorityQueue<>(limit, BY_TOTAL);
+    }
+
+    synchronized void offer(MetricsSnapshot.SlowCall call) {
+        count++;
+        if (calls.size() < limit) {
+            calls.offer(call);
+        } else if (BY_TOTAL.compare(call, calls.peek()) > 0) {
+            calls.poll();
+            calls.offer(call);
+        }
+    }
+
+    /**
+     * 取出区间内的慢调用，按总耗时从长到短排列，并开始新的区间
+     */
+    synchronized Drained drain() {
+        List<MetricsSnapshot.SlowCall> list = new ArrayList<>(calls);
+        list.sort(BY_TOTAL.reversed());
+        Drained drained = new Drained(list, count);
+        calls.clear();
+        count = 0;
+        return drained;
+    }
+
+    static final class Drained {
+
+        final List<MetricsSnapshot.SlowCall> calls;
+        final long count;
+
+        private Drained(List<MetricsSnapshot.SlowCall> calls, long count) {
+            this.calls = calls;
+            this.count = count;
+        }
+    }
+}
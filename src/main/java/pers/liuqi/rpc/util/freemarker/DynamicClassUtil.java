@@ -16,6 +16,7 @@ import pers.liuqi.rpc.AbstractServiceProvider;
 import pers.liuqi.rpc.AbstractServiceRemoteProxy;
 import pers.liuqi.rpc.config.Constant;
 import pers.liuqi.rpc.exception.ServiceImplementNotFoundException;
+import pers.liuqi.rpc.net.MethodTable;
 import pers.liuqi.rpc.service.Service;
 import pers.liuqi.rpc.service.ServiceInfo;
 import pers.liuqi.rpc.util.RuntimeLogger;
@@ -77,10 +78,13 @@ public class DynamicClassUtil {
         String dynamicProxyClassName = "Invoker$$" + serviceClass.getSimpleName();
 
         //模板变量
-        Map<String, Object> params = new HashMap<>(3);
+        Map<String, Object> params = new HashMap<>(5);
         params.put("className", dynamicProxyClassName);
-        params.put("methods", interfaceClass.getMethods());
+        params.put("methods", MethodTable.of(interfaceClass).getMethods());
         params.put("serviceClass", service.getClass().getName());
+        params.put("interfaceClass", interfaceClass.getName());
+        //参数已编码的调用，与Javassist生成的提供者使用同一份方法体
+        params.put("encodedInvoke", pers.liuqi.rpc.util.DynamicClassUtil.encodedInvokeMethod(MethodTable.of(interfaceClass).getMethods()));
 
         //根据模板变量生成代理类
         Class dynamicInvokerClass = DynamicClassUtil.buildClass(Constant.TEMPLATE_INVOKER, dynamicProxyClassName, params);
@@ -98,7 +102,7 @@ public class DynamicClassUtil {
         //模板变量
         Map<String, Object> params = new HashMap<>(3);
         params.put("className", dynamicProxyClassName);
-        params.put("methods", interfaceClass.getMethods());
+        params.put("methods", MethodTable.of(interfaceClass).getMethods());
         params.put("interfaceClass", interfaceClass.getName());
 
 
@@ -120,7 +124,7 @@ public class DynamicClassUtil {
         //模板变量
         Map<String, Object> params = new HashMap<>(3);
         params.put("className", dynamicProxyClassName);
-        params.put("methods", interfaceClass.getMethods());
+        params.put("methods", MethodTable.of(interfaceClass).getMethods());
         params.put("interfaceClass", interfaceClass.getName());
 
 
@@ -24,7 +24,7 @@ public final class ${className} implements ${interfaceClass} {
 
     @Override
     public ${method.returnType.name} ${method.name}(<@formalParam paramTypes = method.parameterTypes />) {
-        Invoke invoke = RpcContext.buildInvoke(this.info.getName(), "${method.name}" <@actualParam paramTypes = method.parameterTypes />);
+        Invoke invoke = RpcContext.buildInvoke(this.info.getName(), ${method?index}, RpcContext.randomRouteHash() <@actualParam paramTypes = method.parameterTypes />);
         invoker.localInvoke(invoke);
     <@genReturn method.returnType />
     }
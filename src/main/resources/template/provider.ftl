@@ -5,6 +5,9 @@ package ${package};
 import pers.liuqi.rpc.AbstractServiceProvider;
 import pers.liuqi.rpc.service.Service;
 import pers.liuqi.rpc.invoke.Invoke;
+import pers.liuqi.rpc.net.BinaryValueCodec;
+import pers.liuqi.rpc.net.TypeTable;
+import io.netty.buffer.ByteBuf;
 
 <#-- 类名 -->
 public final class ${className} extends AbstractServiceProvider {
@@ -12,7 +15,7 @@ public final class ${className} extends AbstractServiceProvider {
     private ${serviceClass} service;
 
     public ${className}(${serviceClass} service) {
-        super(service.getTickInterval());
+        super(service.getTickInterval(), ${interfaceClass}.class);
         this.service = service;
     }
 
@@ -24,10 +27,10 @@ public final class ${className} extends AbstractServiceProvider {
     @Override
     public Object invoke(Invoke invoke) {
         Object[] params = invoke.getParams();
-        switch(invoke.getMethodName()) {
+        switch(invoke.getMethodId()) {
 
 <#list methods as method>
-            case "${method.name}":
+            case ${method?index}:
     <#if method.returnType.name == "void">
                 service.${method.name}(<#list method.parameterTypes as paramType>(${paramType.name})params[${paramType?index}]<#sep> ,</#list>);
                 return null;
@@ -39,4 +42,8 @@ public final class ${className} extends AbstractServiceProvider {
                 return null;
         }
     }
-}
\ No newline at end of file
+
+    <#-- 参数已编码的调用，按方法签名解码参数、编码返回值 -->
+    @Override
+    ${encodedInvoke}
+}
@@ -10,7 +10,7 @@ import ${interfaceClass};
 public final class ${className} extends AbstractRemoteServiceCaller implements ${interfaceClass} {
 
     public ${className}(ServiceInfo info) {
-        super(info);
+        super(info, ${interfaceClass}.class);
     }
 
 
@@ -19,7 +19,7 @@ public final class ${className} extends AbstractRemoteServiceCaller implements $
 
     @Override
     public ${method.returnType.name} ${method.name}(<@formalParam paramTypes = method.parameterTypes />) {
-        remoteInvoke("${method.name}" <@actualParam paramTypes = method.parameterTypes />);
+        remoteInvoke(${method?index}, RpcContext.randomRouteHash() <@actualParam paramTypes = method.parameterTypes />);
     <@genReturn method.returnType />
     }
 </#list>
@@ -0,0 +1,126 @@
+package pers.liuqi.rpc;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class ConsistentHashRingTest {
+
+    private static final int VIRTUAL_NODES = 160;
+    private static final int KEY_COUNT = 10000;
+
+    private static Map<String, Object> members(int count) {
+        Map<String, Object> serviceMap = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            serviceMap.put("server-" + i, "service-" + i);
+        }
+        return serviceMap;
+    }
+
+    private static Map<Integer, Object> route(ConsistentHashRing ring) {
+        Map<Integer, Object> routes = new HashMap<>();
+        for (int key = 0; key < KEY_COUNT; key++) {
+            routes.put(key, ring.select(key));
+        }
+        return routes;
+    }
+
+    @Test
+    public void emptyRing() {
+        ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+        assertNull(ring.select(1));
+        ring.sync(null);
+        assertNull(ring.select(1));
+    }
+
+    @Test
+    public void sameKeySameProvider() {
+        ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+        ring.sync(members(4));
+        for (int key = 0; key < 100; key++) {
+            Object selected = ring.select(key);
+            assertNotNull(selected);
+            assertSame(selected, ring.select(key));
+        }
+    }
+
+    @Test
+    public void keysSpreadAcrossProviders() {
+        ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+        ring.sync(members(4));
+        Map<Object, Integer> counts = new HashMap<>();
+        route(ring).values().forEach(service -> counts.merge(service, 1, Integer::sum));
+
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue("unbalanced: " + counts, count > KEY_COUNT / 4 / 2);
+        }
+    }
+
+    @Test
+    public void addingProviderOnlyMovesKeysToIt() {
+        ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+        Map<String, Object> serviceMap = members(4);
+        ring.sync(serviceMap);
+        Map<Integer, Object> before = route(ring);
+
+        serviceMap.put("server-new", "service-new");
+        ring.sync(serviceMap);
+        Map<Integer, Object> after = route(ring);
+
+        int moved = 0;
+        for (int key = 0; key < KEY_COUNT; key++) {
+            if (!before.get(key).equals(after.get(key))) {
+                assertEquals("service-new", after.get(key));
+                moved++;
+            }
+        }
+        //约1/N的路由键改变提供者
+        assertTrue("moved " + moved, moved > 0 && moved < KEY_COUNT / 5 * 2);
+    }
+
+    @Test
+    public void removingProviderOnlyMovesItsKeys() {
+        ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+        Map<String, Object> serviceMap = members(4);
+        ring.sync(serviceMap);
+        Map<Integer, Object> before = route(ring);
+
+        serviceMap.remove("server-2");
+        ring.sync(serviceMap);
+        Map<Integer, Object> after = route(ring);
+
+        for (int key = 0; key < KEY_COUNT; key++) {
+            if (!"service-2".equals(before.get(key))) {
+                assertSame(before.get(key), after.get(key));
+            } else {
+                assertTrue(serviceMap.containsValue(after.get(key)));
+            }
+        }
+    }
+
+    @Test
+    public void replacedServiceIsResynced() {
+        ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+        Map<String, Object> serviceMap = new HashMap<>();
+        serviceMap.put("server-0", "old");
+        ring.sync(serviceMap);
+        assertEquals("old", ring.select(42));
+
+        //同一个服务器ID的服务代理重建后，环上的节点指向新的代理
+        serviceMap.put("server-0", "new");
+        ring.sync(serviceMap);
+        assertEquals("new", ring.select(42));
+    }
+}
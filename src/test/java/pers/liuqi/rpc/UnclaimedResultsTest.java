@@ -0,0 +1,88 @@
+package pers.liuqi.rpc;
+
+import org.junit.Test;
+import pers.liuqi.rpc.invoke.CallBack;
+import pers.liuqi.rpc.invoke.Future;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class UnclaimedResultsTest {
+
+    private static final int CAPACITY = 8;
+
+    private final AtomicReference<Object> received = new AtomicReference<>();
+    private final AtomicReference<Throwable> failed = new AtomicReference<>();
+
+    private Future<Object> newFuture() {
+        return new Future<>(new CallBack<Object>() {
+            @Override
+            public void call(Object result) {
+                received.set(result);
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                failed.set(cause);
+            }
+        });
+    }
+
+    @Test
+    public void claimParkedResult() {
+        UnclaimedResults results = new UnclaimedResults(CAPACITY);
+        results.put(1, "result", null);
+
+        Future<Object> future = newFuture();
+        assertTrue(results.claim(1, future));
+        assertTrue(future.done());
+        assertEquals("result", received.get());
+
+        //同一个结果只会被取走一次
+        assertFalse(results.claim(1, newFuture()));
+    }
+
+    @Test
+    public void claimParkedFailure() {
+        UnclaimedResults results = new UnclaimedResults(CAPACITY);
+        IllegalStateException cause = new IllegalStateException("closed");
+        results.put(2, null, cause);
+
+        Future<Object> future = newFuture();
+        assertTrue(results.claim(2, future));
+        assertTrue(future.done());
+        assertSame(cause, failed.get());
+        assertNull(received.get());
+    }
+
+    @Test
+    public void missingResult() {
+        UnclaimedResults results = new UnclaimedResults(CAPACITY);
+        results.put(1, "result", null);
+
+        Future<Object> future = newFuture();
+        assertFalse(results.claim(2, future));
+        assertFalse(future.done());
+    }
+
+    @Test
+    public void newerResultOverwritesSlot() {
+        UnclaimedResults results = new UnclaimedResults(CAPACITY);
+        results.put(3, "old", null);
+        results.put(3 + CAPACITY, "new", null);
+
+        assertFalse(results.claim(3, newFuture()));
+        Future<Object> future = newFuture();
+        assertTrue(results.claim(3 + CAPACITY, future));
+        assertTrue(future.done());
+        assertEquals("new", received.get());
+    }
+}
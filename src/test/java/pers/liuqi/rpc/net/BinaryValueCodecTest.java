@@ -0,0 +1,173 @@
+package pers.liuqi.rpc.net;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Test;
+import pers.liuqi.rpc.service.ServiceInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class BinaryValueCodecTest {
+
+    private final ByteBuf buf = Unpooled.buffer();
+
+    @After
+    public void release() {
+        buf.release();
+    }
+
+    private Object roundTrip(Object value) {
+        BinaryValueCodec.writeValue(buf, value, TypeTable.EMPTY);
+        Object decoded = BinaryValueCodec.readValue(buf, TypeTable.EMPTY);
+        assertFalse("unread bytes", buf.isReadable());
+        return decoded;
+    }
+
+    @Test
+    public void primitives() {
+        assertNull(roundTrip(null));
+        assertEquals(Boolean.TRUE, roundTrip(true));
+        assertEquals(Boolean.FALSE, roundTrip(false));
+        assertEquals((byte) -7, roundTrip((byte) -7));
+        assertEquals((short) 300, roundTrip((short) 300));
+        assertEquals('x', roundTrip('x'));
+        assertEquals(Integer.MIN_VALUE, roundTrip(Integer.MIN_VALUE));
+        assertEquals(-1, roundTrip(-1));
+        assertEquals(Long.MAX_VALUE, roundTrip(Long.MAX_VALUE));
+        assertEquals(1.5f, roundTrip(1.5f));
+        assertEquals(-2.25d, roundTrip(-2.25d));
+    }
+
+    @Test
+    public void strings() {
+        assertEquals("", roundTrip(""));
+        assertEquals("hello", roundTrip("hello"));
+        assertEquals("中文与emoji😀", roundTrip("中文与emoji😀"));
+    }
+
+    @Test
+    public void varInts() {
+        for (int value : new int[]{0, 1, -1, 63, -64, 64, 8191, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            BinaryValueCodec.writeVarInt(buf, value);
+            assertEquals(value, BinaryValueCodec.readVarInt(buf));
+        }
+        for (long value : new long[]{0, -1, Long.MAX_VALUE, Long.MIN_VALUE, 1L << 40}) {
+            BinaryValueCodec.writeVarLong(buf, value);
+            assertEquals(value, BinaryValueCodec.readVarLong(buf));
+            BinaryValueCodec.writeLong(buf, value);
+            assertEquals(value, BinaryValueCodec.readLong(buf));
+        }
+        //ZigZag编码后，绝对值小的负数也只占一个字节
+        BinaryValueCodec.writeInt(buf, -1);
+        assertEquals(1, buf.readableBytes());
+        assertEquals(-1, BinaryValueCodec.readInt(buf));
+    }
+
+    @Test
+    public void bytesAndArrays() {
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) roundTrip(new byte[]{1, 2, 3}));
+        assertArrayEquals(new int[]{4, 5, 6}, (int[]) roundTrip(new int[]{4, 5, 6}));
+        assertArrayEquals(new String[]{"a", null, "c"}, (String[]) roundTrip(new String[]{"a", null, "c"}));
+    }
+
+    @Test
+    public void enums() {
+        assertSame(TimeUnit.SECONDS, roundTrip(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void defaultContainers() {
+        List<Object> list = new ArrayList<>(Arrays.asList(1, "two", null, 3L));
+        Object decodedList = roundTrip(list);
+        assertEquals(ArrayList.class, decodedList.getClass());
+        assertEquals(list, decodedList);
+
+        Object decodedSet = roundTrip(new HashSet<>(Arrays.asList("a", "b")));
+        assertEquals(HashSet.class, decodedSet.getClass());
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), decodedSet);
+
+        Map<Object, Object> map = new HashMap<>();
+        map.put(1, Arrays.asList("x", "y"));
+        map.put("k", null);
+        Object decodedMap = roundTrip(map);
+        assertEquals(HashMap.class, decodedMap.getClass());
+        assertEquals(map, decodedMap);
+    }
+
+    @Test
+    public void concreteContainers() {
+        LinkedList<Object> list = new LinkedList<>(Arrays.asList(3, 2, 1));
+        Object decodedList = roundTrip(list);
+        assertEquals(LinkedList.class, decodedList.getClass());
+        assertEquals(list, decodedList);
+
+        LinkedHashSet<Object> set = new LinkedHashSet<>(Arrays.asList("z", "a", "m"));
+        Object decodedSet = roundTrip(set);
+        assertEquals(LinkedHashSet.class, decodedSet.getClass());
+        assertEquals(new ArrayList<>(set), new ArrayList<>((LinkedHashSet<?>) decodedSet));
+
+        TreeMap<Object, Object> map = new TreeMap<>();
+        map.put("b", 2);
+        map.put("a", 1);
+        Object decodedMap = roundTrip(map);
+        assertEquals(TreeMap.class, decodedMap.getClass());
+        assertEquals(map, decodedMap);
+    }
+
+    @Test
+    public void containerWithoutConstructorFallsBack() {
+        //不可变集合没有可用的无参构造器，解码为默认类型
+        List<Object> list = Collections.unmodifiableList(Arrays.asList(1, 2));
+        Object decoded = roundTrip(list);
+        assertEquals(ArrayList.class, decoded.getClass());
+        assertEquals(list, decoded);
+    }
+
+    @Test
+    public void otherObjectsFallBackToJson() {
+        ServiceInfo info = new ServiceInfo();
+        info.setId("server-1");
+        info.setName("FriendService");
+        info.setIp("127.0.0.1");
+        info.setPort(9000);
+        info.setWeight(3);
+
+        ServiceInfo decoded = (ServiceInfo) roundTrip(info);
+        assertEquals("server-1", decoded.getId());
+        assertEquals("FriendService", decoded.getName());
+        assertEquals("127.0.0.1", decoded.getIp());
+        assertEquals(9000, decoded.getPort());
+        assertEquals(3, decoded.getWeight());
+    }
+
+    @Test
+    public void nestedObjectInContainer() {
+        ServiceInfo info = new ServiceInfo();
+        info.setName("nested");
+        Map<Object, Object> map = new HashMap<>();
+        map.put("info", info);
+
+        Map<?, ?> decoded = (Map<?, ?>) roundTrip(map);
+        assertEquals("nested", ((ServiceInfo) decoded.get("info")).getName());
+    }
+}
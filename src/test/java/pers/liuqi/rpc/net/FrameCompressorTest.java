@@ -0,0 +1,137 @@
+package pers.liuqi.rpc.net;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class FrameCompressorTest {
+
+    private static final int THRESHOLD = 64;
+    private static final int MAX_FRAME_LENGTH = 1 << 20;
+
+    private static final byte[] DICTIONARY = "invokeId methodId serviceName FriendService result".getBytes(CharsetUtil.UTF_8);
+
+    private static EmbeddedChannel newChannel(Compression compression, byte[] dictionary) {
+        return new EmbeddedChannel(new FrameCompressor(compression, dictionary, THRESHOLD, MAX_FRAME_LENGTH, true));
+    }
+
+    private static byte[] compressible(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        while (builder.length() < length) {
+            builder.append("FriendService result ").append(builder.length() % 7);
+        }
+        return builder.substring(0, length).getBytes(CharsetUtil.UTF_8);
+    }
+
+    /**
+     * 经过发送端压缩、接收端解压后的数据
+     *
+     * @return 发送端写出的数据包长度与解压后的数据
+     */
+    private static Object[] transfer(EmbeddedChannel sender, EmbeddedChannel receiver, byte[] data) {
+        assertTrue(sender.writeOutbound(Unpooled.wrappedBuffer(data)));
+        ByteBuf frame = sender.readOutbound();
+        int frameLength = frame.readableBytes();
+        assertTrue(receiver.writeInbound(frame));
+        ByteBuf decoded = receiver.readInbound();
+        try {
+            return new Object[]{frameLength, ByteBufUtil.getBytes(decoded)};
+        } finally {
+            decoded.release();
+        }
+    }
+
+    private static void assertRoundTrip(Compression compression, byte[] dictionary, byte[] data, boolean expectCompressed) {
+        EmbeddedChannel sender = newChannel(compression, dictionary);
+        EmbeddedChannel receiver = newChannel(compression, dictionary);
+        try {
+            Object[] result = transfer(sender, receiver, data);
+            assertArrayEquals(data, (byte[]) result[1]);
+            int frameLength = (Integer) result[0];
+            if (expectCompressed) {
+                assertTrue("frame not compressed: " + frameLength, frameLength < data.length);
+            } else {
+                //原始数据只增加一个字节的标记
+                assertEquals(data.length + 1, frameLength);
+            }
+        } finally {
+            sender.finishAndReleaseAll();
+            receiver.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    public void lz4() {
+        assertRoundTrip(Compression.LZ4, null, compressible(4096), true);
+    }
+
+    @Test
+    public void deflate() {
+        assertRoundTrip(Compression.DEFLATE, null, compressible(4096), true);
+    }
+
+    @Test
+    public void deflateWithDictionary() {
+        assertRoundTrip(Compression.DEFLATE, DICTIONARY, compressible(4096), true);
+    }
+
+    @Test
+    public void largeFrame() {
+        assertRoundTrip(Compression.DEFLATE, DICTIONARY, compressible(200_000), true);
+        assertRoundTrip(Compression.LZ4, null, compressible(200_000), true);
+    }
+
+    @Test
+    public void belowThresholdSentRaw() {
+        assertRoundTrip(Compression.LZ4, null, compressible(THRESHOLD - 1), false);
+        assertRoundTrip(Compression.DEFLATE, null, compressible(THRESHOLD - 1), false);
+    }
+
+    @Test
+    public void incompressibleSentRaw() {
+        byte[] data = new byte[1024];
+        ThreadLocalRandom.current().nextBytes(data);
+        assertRoundTrip(Compression.LZ4, null, data, false);
+        assertRoundTrip(Compression.DEFLATE, null, data, false);
+    }
+
+    @Test
+    public void consecutiveFrames() {
+        EmbeddedChannel sender = newChannel(Compression.DEFLATE, DICTIONARY);
+        EmbeddedChannel receiver = newChannel(Compression.DEFLATE, DICTIONARY);
+        try {
+            for (int length = 100; length < 5000; length += 700) {
+                byte[] data = compressible(length);
+                assertArrayEquals(data, (byte[]) transfer(sender, receiver, data)[1]);
+            }
+        } finally {
+            sender.finishAndReleaseAll();
+            receiver.finishAndReleaseAll();
+        }
+    }
+
+    @Test(expected = DecoderException.class)
+    public void dictionaryMismatch() {
+        EmbeddedChannel sender = newChannel(Compression.DEFLATE, DICTIONARY);
+        EmbeddedChannel receiver = newChannel(Compression.DEFLATE, null);
+        try {
+            transfer(sender, receiver, compressible(4096));
+        } finally {
+            sender.finishAndReleaseAll();
+            receiver.finishAndReleaseAll();
+        }
+    }
+}
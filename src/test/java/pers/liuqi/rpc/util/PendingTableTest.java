@@ -0,0 +1,144 @@
+package pers.liuqi.rpc.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author LiuQi - [Created on 2026-10-18]
+ */
+public class PendingTableTest {
+
+    private static final int CAPACITY = 8;
+
+    @Test
+    public void putGetRemove() {
+        PendingTable<String> table = new PendingTable<>(CAPACITY);
+        table.put(1, "a");
+        table.put(2, "b");
+
+        assertEquals("a", table.get(1));
+        assertEquals("b", table.get(2));
+        assertNull(table.get(3));
+
+        assertEquals("a", table.remove(1));
+        assertNull(table.get(1));
+        assertNull(table.remove(1));
+        assertEquals("b", table.get(2));
+    }
+
+    @Test
+    public void capacityRoundsUpToPowerOfTwo() {
+        PendingTable<String> table = new PendingTable<>(5);
+        //容量取整为8，键1与9落在同一个槽位
+        table.put(1, "a");
+        table.put(9, "b");
+        assertEquals(1, table.getOverflowSize());
+        assertEquals("a", table.get(1));
+        assertEquals("b", table.get(9));
+    }
+
+    @Test
+    public void wrapReusesFreedSlot() {
+        PendingTable<String> table = new PendingTable<>(CAPACITY);
+        for (long key = 1; key <= CAPACITY * 4; key++) {
+            table.put(key, "v" + key);
+            assertEquals("v" + key, table.remove(key));
+        }
+        //键绕环后占用已释放的槽位，旧的键不会命中
+        assertEquals(0, table.getOverflowSize());
+        table.put(1 + CAPACITY * 4, "x");
+        assertEquals("x", table.get(1 + CAPACITY * 4));
+        assertNull(table.get(1));
+        assertNull(table.get(1 + CAPACITY));
+    }
+
+    @Test
+    public void occupiedSlotOverflows() {
+        PendingTable<String> table = new PendingTable<>(CAPACITY);
+        table.put(3, "old");
+        table.put(3 + CAPACITY, "new");
+        table.put(3 + CAPACITY * 2, "newer");
+
+        assertEquals(2, table.getOverflowSize());
+        assertEquals("old", table.get(3));
+        assertEquals("new", table.get(3 + CAPACITY));
+        assertEquals("newer", table.get(3 + CAPACITY * 2));
+
+        assertEquals("new", table.remove(3 + CAPACITY));
+        assertEquals(1, table.getOverflowSize());
+        assertEquals("old", table.remove(3));
+        assertEquals("newer", table.remove(3 + CAPACITY * 2));
+        assertEquals(0, table.getOverflowSize());
+    }
+
+    @Test
+    public void removeWithExpect() {
+        PendingTable<String> table = new PendingTable<>(CAPACITY);
+        table.put(1, "a");
+        table.put(1 + CAPACITY, "b");
+
+        assertNull(table.remove(1, "other"));
+        assertNull(table.remove(1 + CAPACITY, "other"));
+        assertEquals("a", table.remove(1, "a"));
+        assertEquals("b", table.remove(1 + CAPACITY, "b"));
+    }
+
+    @Test
+    public void sameValueUnderReusedSlot() {
+        //同一个值对象先后登记在占用同一个槽位的两个键上，旧键的删除不影响新键
+        PendingTable<Object> table = new PendingTable<>(CAPACITY);
+        Object window = new Object();
+        table.put(2, window);
+        assertSame(window, table.remove(2, window));
+        table.put(2 + CAPACITY, window);
+
+        assertNull(table.remove(2, window));
+        assertNull(table.get(2));
+        assertSame(window, table.get(2 + CAPACITY));
+        assertSame(window, table.remove(2 + CAPACITY, window));
+    }
+
+    @Test
+    public void removeAllByValue() {
+        PendingTable<Object> table = new PendingTable<>(CAPACITY);
+        Object window = new Object();
+        Object other = new Object();
+        table.put(1, window);
+        table.put(2, other);
+        table.put(3, window);
+        table.put(3 + CAPACITY, window);
+
+        List<Long> removed = new ArrayList<>();
+        table.removeAll(window, removed::add);
+        removed.sort(Long::compare);
+
+        assertEquals(3, removed.size());
+        assertEquals(Long.valueOf(1), removed.get(0));
+        assertEquals(Long.valueOf(3), removed.get(1));
+        assertEquals(Long.valueOf(3 + CAPACITY), removed.get(2));
+        assertNull(table.get(1));
+        assertNull(table.get(3 + CAPACITY));
+        assertSame(other, table.get(2));
+        assertEquals(0, table.getOverflowSize());
+    }
+
+    @Test
+    public void clear() {
+        PendingTable<String> table = new PendingTable<>(CAPACITY);
+        table.put(1, "a");
+        table.put(1 + CAPACITY, "b");
+        table.clear();
+
+        assertNull(table.get(1));
+        assertNull(table.get(1 + CAPACITY));
+        assertEquals(0, table.getOverflowSize());
+        table.put(1 + CAPACITY * 2, "c");
+        assertEquals("c", table.get(1 + CAPACITY * 2));
+    }
+}